@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.cli;
+
+import info.wso2.scim2.compliance.entities.Result;
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.pdf.PDFGenerator;
+import info.wso2.scim2.compliance.protocol.ComplianceRunner;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * This runs the compliance test suites from the command line, without a servlet container, eg: to gate a
+ * deployment in a build pipeline. The service provider is given with flags, or with a properties file
+ * using the same keys as the web form, eg: url=https://localhost:9443/scim2. The results are written to
+ * compliance-results.json in the output directory, and the PDF report as well when asked for.
+ *
+ * The exit status is 0 when no test failed, 1 when a test failed and 2 when the suites could not be run.
+ */
+public class ComplianceCli {
+
+    private static final String USAGE = "Usage: java -jar scimproxycompliance-cli.jar [options]\n"
+            + "  --url <url>                       SCIM 2.0 endpoint of the service provider\n"
+            + "  --username <username>\n"
+            + "  --password <password>\n"
+            + "  --clientId <client id>\n"
+            + "  --clientSecret <client secret>\n"
+            + "  --authorizationServer <url>\n"
+            + "  --authorizationHeader <header>\n"
+            + "  --authMethod <method>\n"
+            + "  --config <file>                   properties file with the options above, flags take precedence\n"
+            + "  --output <directory>              where the results are written, the current directory by default\n"
+            + "  --report                          also write the PDF report\n"
+            + "  --help";
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Run the test suites as given by the command line arguments.
+     * @param args
+     * @return the exit status
+     */
+    public static int run(String[] args) {
+        Properties options = new Properties();
+        Properties flags = new Properties();
+        boolean report = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--help".equals(arg)) {
+                    System.out.println(USAGE);
+                    return ComplianceConstants.CliConstants.EXIT_SUCCESS;
+                } else if ("--report".equals(arg)) {
+                    report = true;
+                } else if (arg.startsWith("--") && i + 1 < args.length) {
+                    flags.setProperty(arg.substring(2), args[++i]);
+                } else {
+                    throw new ComplianceException("Unknown option " + arg + ".");
+                }
+            }
+            String config = flags.getProperty(ComplianceConstants.CliConstants.CONFIG);
+            if (config != null) {
+                try (InputStream inputStream = new FileInputStream(config)) {
+                    options.load(inputStream);
+                } catch (IOException e) {
+                    throw new ComplianceException("Could not read the config file " + config + ".", e);
+                }
+            }
+            options.putAll(flags);
+        } catch (ComplianceException e) {
+            System.err.println(e.getDetail());
+            System.err.println(USAGE);
+            return ComplianceConstants.CliConstants.EXIT_ERROR;
+        }
+
+        File outputDirectory = new File(options.getProperty(ComplianceConstants.CliConstants.OUTPUT, "."));
+        Result finalResults;
+        try {
+            ComplianceTestMetaDataHolder complianceTestMetaDataHolder = ComplianceRunner.createMetaDataHolder(
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.URL),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.USERNAME, ""),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.PASSWORD, ""),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.CLIENT_ID),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.CLIENT_SECRET),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.AUTHORIZATION_SERVER),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.AUTHORIZATION_HEADER),
+                    options.getProperty(ComplianceConstants.RequestCodeConstants.AUTHORIZATION_METHOD));
+            finalResults = ComplianceRunner.run(complianceTestMetaDataHolder,
+                    (name, results) -> System.out.println(name + " completed"));
+        } catch (ComplianceException e) {
+            System.err.println("Could not run the test suites: " + e.getDetail());
+            return ComplianceConstants.CliConstants.EXIT_ERROR;
+        }
+
+        try {
+            Files.createDirectories(outputDirectory.toPath());
+            File resultsFile = new File(outputDirectory, ComplianceConstants.CliConstants.RESULTS_FILE_NAME);
+            writeResults(finalResults, resultsFile);
+            System.out.println("Results written to " + resultsFile.getPath());
+            if (report) {
+                System.out.println("Report written to "
+                        + PDFGenerator.GeneratePDFResults(finalResults, outputDirectory.getPath()));
+            }
+        } catch (IOException | JSONException e) {
+            System.err.println("Could not write the results: " + e.getMessage());
+            return ComplianceConstants.CliConstants.EXIT_ERROR;
+        }
+
+        for (TestResult testResult : finalResults.getResults()) {
+            if (testResult.getStatus() == TestResult.ERROR) {
+                System.out.println(testResult.getStatusText() + " : " + testResult.getName() + " : "
+                        + testResult.getMessage());
+            }
+        }
+        System.out.println("Success : " + finalResults.getStatistics().getSuccess()
+                + ", Failed : " + finalResults.getStatistics().getFailed()
+                + ", Skipped : " + finalResults.getStatistics().getSkipped());
+        return finalResults.getStatistics().getFailed() == 0 ? ComplianceConstants.CliConstants.EXIT_SUCCESS
+                : ComplianceConstants.CliConstants.EXIT_FAILED;
+    }
+
+    private static void writeResults(Result finalResults, File file) throws IOException, JSONException {
+        JSONArray results = new JSONArray();
+        for (TestResult testResult : finalResults.getResults()) {
+            JSONObject result = new JSONObject();
+            result.put("name", testResult.getName());
+            result.put("status", testResult.getStatusText());
+            result.put("message", testResult.getMessage());
+            if (testResult.getWire() != null) {
+                JSONObject wire = new JSONObject();
+                wire.put("to_server", testResult.getWire().getToServer());
+                wire.put("from_server", testResult.getWire().getFromServer());
+                wire.put("tests", testResult.getWire().getTests());
+                result.put("wire", wire);
+            }
+            results.put(result);
+        }
+        JSONObject statistics = new JSONObject();
+        statistics.put("success", finalResults.getStatistics().getSuccess());
+        statistics.put("failed", finalResults.getStatistics().getFailed());
+        statistics.put("skipped", finalResults.getStatistics().getSkipped());
+        JSONObject json = new JSONObject();
+        json.put("statistics", statistics);
+        json.put("results", results);
+
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            json.write(writer);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.entities;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The progress of a compliance run job: the test results completed since the client last asked, and the
+ * final result once the run is over.
+ */
+@XmlRootElement
+public class JobProgress {
+
+    @XmlElement(name = "id")
+    String id = "";
+
+    @XmlElement(name = "status")
+    String status = "";
+
+    @XmlElement(name = "results")
+    List<TestResult> results = new ArrayList<TestResult>();
+
+    // where the client continues from on its next request
+    @XmlElement(name = "next")
+    int next;
+
+    @XmlElement(name = "result")
+    Result result;
+
+    public JobProgress() {}
+
+    public JobProgress(String id, String status, List<TestResult> results, int next, Result result) {
+        this.id = id;
+        this.status = status;
+        this.results = results;
+        this.next = next;
+        this.result = result;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public List<TestResult> getResults() {
+        return results;
+    }
+
+    public int getNext() {
+        return next;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+}
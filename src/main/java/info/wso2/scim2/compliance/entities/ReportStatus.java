@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.entities;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The state of a report generation job, as served to the web client.
+ */
+@XmlRootElement
+public class ReportStatus {
+
+    @XmlElement(name = "id")
+    String id = "";
+
+    @XmlElement(name = "status")
+    String status = "";
+
+    @XmlElement(name = "errorMessage")
+    String errorMessage = "";
+
+    @XmlElement(name = "linkToReport")
+    String link = "";
+
+    public ReportStatus() {}
+
+    public ReportStatus(String id, String status, String errorMessage, String link) {
+        this.id = id;
+        this.status = status;
+        this.errorMessage = errorMessage;
+        this.link = link;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public String getLink() {
+        return link;
+    }
+}
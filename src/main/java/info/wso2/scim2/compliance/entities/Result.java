@@ -35,6 +35,9 @@ public class Result {
     @XmlElement(name = "linkToReport")
     String           link = "";
 
+    @XmlElement(name = "reportJobId")
+    String           reportJobId = "";
+
     public Result() {
 
     }
@@ -63,4 +66,8 @@ public class Result {
     public void setReportLink(String reportLink) {
         link = reportLink;
     }
+
+    public void setReportJobId(String reportJobId) {
+        this.reportJobId = reportJobId;
+    }
 }
@@ -20,6 +20,7 @@ import info.wso2.scim2.compliance.utils.ComplianceConstants;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.util.List;
 
 @XmlRootElement
 public class TestResult {
@@ -49,6 +50,10 @@ public class TestResult {
     @XmlElement(name = "wire")
     Wire wire;
 
+    // every violation found by a collect-all validation, null otherwise
+    @XmlElement(name = "violations")
+    List<Violation> violations;
+
     private int status;
 
     public TestResult() {}
@@ -64,6 +69,11 @@ public class TestResult {
         this.statusLabel = statusLabels[status];
     }
 
+    public TestResult(int status, String name, List<Violation> violations, Wire wire) {
+        this(status, name, toMessage(violations), wire);
+        this.violations = violations;
+    }
+
     public TestResult(int status, ComplianceException complianceException){
         this.name = complianceException.getDetail();
         this.message = "";
@@ -87,6 +97,10 @@ public class TestResult {
         return wire;
     }
 
+    public List<Violation> getViolations() {
+        return violations;
+    }
+
     public String getName() {
         return name;
     }
@@ -98,4 +112,15 @@ public class TestResult {
     public String getStatusLabel() {
         return statusLabel;
     }
+
+    private static String toMessage(List<Violation> violations) {
+        StringBuilder message = new StringBuilder();
+        for (Violation violation : violations) {
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(violation.getTest()).append(" : ").append(violation.getMessage());
+        }
+        return message.toString();
+    }
 }
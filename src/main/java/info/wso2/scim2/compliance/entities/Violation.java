@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.entities;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A single problem found while validating a response, eg: a missing required attribute.
+ */
+@XmlRootElement
+public class Violation {
+
+    @XmlElement(name = "test")
+    String test = "";
+
+    @XmlElement(name = "message")
+    String message = "";
+
+    public Violation() {}
+
+    public Violation(String test, String message) {
+        this.test = test;
+        this.message = message;
+    }
+
+    public String getTest() {
+        return test;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Violation)) {
+            return false;
+        }
+        Violation violation = (Violation) o;
+        return test.equals(violation.test) && message.equals(violation.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * test.hashCode() + message.hashCode();
+    }
+}
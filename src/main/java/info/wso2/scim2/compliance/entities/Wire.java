@@ -15,40 +15,266 @@
  */
 package info.wso2.scim2.compliance.entities;
 
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * The request and the response of a test case. The three parts are truncated to a configurable length and
+ * kept gzip compressed each on its own, on the heap or, above a configurable size, together in a temp file.
+ * A part is decompressed on each read of it, eg: when the result is marshalled or the report is generated,
+ * and not kept decompressed.
+ */
 @XmlRootElement
+@XmlAccessorType(XmlAccessType.NONE)
 public class Wire {
+    private static final int MAX_PART_LENGTH = Integer.getInteger(
+            ComplianceConstants.WireConstants.MAX_PART_LENGTH_PROPERTY,
+            ComplianceConstants.WireConstants.DEFAULT_MAX_PART_LENGTH);
+    private static final int SPILL_THRESHOLD = Integer.getInteger(
+            ComplianceConstants.WireConstants.SPILL_THRESHOLD_PROPERTY,
+            ComplianceConstants.WireConstants.DEFAULT_SPILL_THRESHOLD);
+
+    // spill files of the collected wires, deleted on the next store
+    private static final ReferenceQueue<Wire> collected = new ReferenceQueue<>();
+    private static final Set<SpillReference> spilled = ConcurrentHashMap.newKeySet();
+
+    static {
+        // the spill files still in use on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (SpillReference spillReference : spilled) {
+                spillReference.file.delete();
+            }
+        }, "compliance-wire-cleanup"));
+    }
+
+    // after the static state a wire is stored with
     public static final Wire EMPTY = new Wire("<empty>", "<empty>", "<empty>");
-    
-    @XmlElement(name = "to_server")
-    String toServer = "";
-    
-    @XmlElement(name = "from_server")
-    String fromServer = "";
 
-    @XmlElement(name = "tests")
-    String tests = "";
+    // the compressed parts, null when they are spilled or pinned
+    private byte[][] records;
+    private SpillReference spillFile;
+    // length of each compressed part in the spill file, -1 for a null part
+    private int[] spilledLengths;
+    // holds the parts when they could not be stored compressed
+    private String[] pinned;
 
     public Wire() {
+        this("", "", "");
     }
 
     public Wire(String toServer, String fromServer, String tests) {
-        this.toServer = toServer;
-        this.fromServer = fromServer;
-        this.tests = tests;
+        String[] values = {truncate(toServer), truncate(fromServer), truncate(tests)};
+        try {
+            store(new byte[][] {compress(values[0]), compress(values[1]), compress(values[2])});
+        } catch (IOException e) {
+            pin(values);
+        }
     }
 
+    @XmlElement(name = "to_server")
     public String getToServer() {
-        return toServer;
+        return getPart(0);
     }
 
+    @XmlElement(name = "from_server")
     public String getFromServer() {
-        return fromServer;
+        return getPart(1);
     }
 
+    @XmlElement(name = "tests")
     public String getTests() {
-        return tests;
+        return getPart(2);
+    }
+
+    // used by JAXB when unmarshalling, parts are set one at a time
+    private void setToServer(String toServer) {
+        setPart(0, truncate(toServer));
+    }
+
+    private void setFromServer(String fromServer) {
+        setPart(1, truncate(fromServer));
+    }
+
+    private void setTests(String tests) {
+        setPart(2, truncate(tests));
+    }
+
+    private static String truncate(String part) {
+        if (part == null || part.length() <= MAX_PART_LENGTH) {
+            return part;
+        }
+        return part.substring(0, MAX_PART_LENGTH) + "\n... [truncated " + (part.length() - MAX_PART_LENGTH)
+                + " characters]";
+    }
+
+    private void setPart(int index, String value) {
+        if (pinned != null) {
+            pinned[index] = value;
+            return;
+        }
+        try {
+            // the other parts are moved as they are, without decompressing them
+            byte[][] current = getRecords();
+            current[index] = compress(value);
+            store(current);
+        } catch (IOException e) {
+            String[] values = {getPart(0), getPart(1), getPart(2)};
+            values[index] = value;
+            pin(values);
+        }
+    }
+
+    private static byte[] compress(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void store(byte[][] compressed) throws IOException {
+        expunge();
+        int size = 0;
+        for (byte[] part : compressed) {
+            size += part == null ? 0 : part.length;
+        }
+        if (size > SPILL_THRESHOLD) {
+            File file = File.createTempFile("scim2-compliance-wire", ".gz");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+            int[] lengths = new int[compressed.length];
+            for (int i = 0; i < compressed.length; i++) {
+                lengths[i] = compressed[i] == null ? -1 : compressed[i].length;
+                if (compressed[i] != null) {
+                    bytes.write(compressed[i]);
+                }
+            }
+            try {
+                Files.write(file.toPath(), bytes.toByteArray());
+            } catch (IOException e) {
+                file.delete();
+                throw e;
+            }
+            // the parts are kept where they are until the new file is written
+            deleteSpillFile();
+            spillFile = new SpillReference(this, file);
+            spilled.add(spillFile);
+            spilledLengths = lengths;
+            records = null;
+        } else {
+            deleteSpillFile();
+            records = compressed;
+        }
+        pinned = null;
+    }
+
+    // keep the wire on the heap uncompressed rather than losing it
+    private void pin(String[] values) {
+        deleteSpillFile();
+        records = null;
+        pinned = values;
+    }
+
+    /*
+     * Get the compressed parts, reading them from the spill file if they were spilled.
+     */
+    private byte[][] getRecords() throws IOException {
+        if (records != null) {
+            return records.clone();
+        }
+        byte[][] compressed = new byte[spilledLengths.length][];
+        for (int i = 0; i < compressed.length; i++) {
+            compressed[i] = readSpilled(i);
+        }
+        return compressed;
+    }
+
+    private byte[] readSpilled(int index) throws IOException {
+        if (spilledLengths[index] < 0) {
+            return null;
+        }
+        long offset = 0;
+        for (int i = 0; i < index; i++) {
+            offset += Math.max(0, spilledLengths[i]);
+        }
+        byte[] compressed = new byte[spilledLengths[index]];
+        try (RandomAccessFile file = new RandomAccessFile(spillFile.file, "r")) {
+            file.seek(offset);
+            file.readFully(compressed);
+        }
+        return compressed;
+    }
+
+    private String getPart(int index) {
+        if (pinned != null) {
+            return pinned[index];
+        }
+        try {
+            byte[] compressed = records != null ? records[index] : readSpilled(index);
+            if (compressed == null) {
+                return null;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(compressed.length * 4);
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                byte[] buffer = new byte[8192];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "<unavailable>";
+        }
+    }
+
+    private void deleteSpillFile() {
+        if (spillFile != null) {
+            spilled.remove(spillFile);
+            spillFile.file.delete();
+            spillFile.clear();
+            spillFile = null;
+            spilledLengths = null;
+        }
+    }
+
+    private static void expunge() {
+        Reference<? extends Wire> reference;
+        while ((reference = collected.poll()) != null) {
+            if (spilled.remove(reference)) {
+                ((SpillReference) reference).file.delete();
+            }
+        }
+    }
+
+    private static class SpillReference extends PhantomReference<Wire> {
+
+        private final File file;
+
+        private SpillReference(Wire wire, File file) {
+            super(wire, collected);
+            this.file = file;
+        }
     }
 }
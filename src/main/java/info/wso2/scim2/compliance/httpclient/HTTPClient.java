@@ -18,60 +18,234 @@ package info.wso2.scim2.compliance.httpclient;
 import info.wso2.scim2.compliance.exception.ComplianceException;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import org.apache.commons.codec.binary.Base64;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.TrustStrategy;
 
 import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
+import java.io.InterruptedIOException;
 import java.nio.charset.Charset;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is to depicts the HTTP client.
  */
 public class HTTPClient {
 
-    private static CloseableHttpClient httpClient = null;
+    // one pooled client per connection configuration, shared by all the runs using that configuration
+    private static final ConcurrentHashMap<String, CloseableHttpClient> httpClients = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, CloseableHttpAsyncClient> httpAsyncClients =
+            new ConcurrentHashMap<>();
 
+    private static final HostnameVerifier allHostsValid = new HostnameVerifier() {
+        public boolean verify(String hostname, SSLSession session) {
+            return true;
+        }
+    };
+
+    /**
+     * Get a client with the default connection configuration.
+     * @return
+     * @throws ComplianceException
+     */
     public static HttpClient getHttpClient() throws ComplianceException {
-        if(httpClient == null) {
-            TrustStrategy trustAllStrategy = new TrustStrategy() {
-                public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-                    return true;
+        return getHttpClient(new ComplianceTestMetaDataHolder());
+    }
+
+    /**
+     * Get a client with the pool limits and timeouts configured for the run.
+     * @param complianceTestMetaDataHolder
+     * @return
+     * @throws ComplianceException
+     */
+    public static HttpClient getHttpClient(ComplianceTestMetaDataHolder complianceTestMetaDataHolder)
+            throws ComplianceException {
+        String key = getConnectionKey(complianceTestMetaDataHolder);
+        CloseableHttpClient httpClient = httpClients.get(key);
+        if (httpClient == null) {
+            synchronized (httpClients) {
+                httpClient = httpClients.get(key);
+                if (httpClient == null) {
+                    httpClient = buildHttpClient(complianceTestMetaDataHolder);
+                    httpClients.put(key, httpClient);
                 }
-            };
-            SSLContextBuilder builder = new SSLContextBuilder();
-            try {
-                builder.loadTrustMaterial(trustAllStrategy);
-            } catch (NoSuchAlgorithmException | KeyStoreException e) {
-                throw new ComplianceException("Error in setting up the http client");
             }
+        }
+        return httpClient;
+    }
+
+    private static CloseableHttpClient buildHttpClient(ComplianceTestMetaDataHolder complianceTestMetaDataHolder)
+            throws ComplianceException {
+        SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(buildSSLContext(), allHostsValid);
+
+        // the socket factory has to go to the connection manager, the builder ignores it once a manager is set
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register(ComplianceConstants.RequestCodeConstants.HTTP, PlainConnectionSocketFactory.getSocketFactory())
+                .register(ComplianceConstants.RequestCodeConstants.HTTPS, sslsf)
+                .build();
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setDefaultMaxPerRoute(complianceTestMetaDataHolder.getMaxConnectionsPerRoute());
+        connectionManager.setMaxTotal(complianceTestMetaDataHolder.getMaxTotalConnections());
 
-            SSLConnectionSocketFactory sslsf = null;
-            try {
-                HostnameVerifier allHostsValid = new HostnameVerifier() {
-                    public boolean verify(String hostname, SSLSession session) {
-                        return true;
-                    }
-                };
-                sslsf = new SSLConnectionSocketFactory(builder.build(), allHostsValid);
-            } catch (NoSuchAlgorithmException | KeyManagementException e) {
-                throw new ComplianceException("Error in setting up the http client");
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(buildRequestConfig(complianceTestMetaDataHolder))
+                .addInterceptorFirst(new TargetRateLimiter())
+                .evictExpiredConnections()
+                .evictIdleConnections(complianceTestMetaDataHolder.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Get a started asynchronous client with the pool limits and timeouts configured for the run. Requests
+     * on it are multiplexed over a few I/O threads, instead of holding a thread each until they complete.
+     * @param complianceTestMetaDataHolder
+     * @return
+     * @throws ComplianceException
+     */
+    public static HttpAsyncClient getHttpAsyncClient(ComplianceTestMetaDataHolder complianceTestMetaDataHolder)
+            throws ComplianceException {
+        String key = getConnectionKey(complianceTestMetaDataHolder);
+        CloseableHttpAsyncClient httpAsyncClient = httpAsyncClients.get(key);
+        if (httpAsyncClient == null) {
+            synchronized (httpAsyncClients) {
+                httpAsyncClient = httpAsyncClients.get(key);
+                if (httpAsyncClient == null) {
+                    httpAsyncClient = buildHttpAsyncClient(complianceTestMetaDataHolder);
+                    httpAsyncClient.start();
+                    httpAsyncClients.put(key, httpAsyncClient);
+                }
             }
-            httpClient = HttpClients.custom().setSSLSocketFactory(sslsf).build();
-            return httpClient;
         }
-        return httpClient;
+        return httpAsyncClient;
+    }
+
+    /**
+     * Execute the request without blocking the calling thread. The response body is buffered before the
+     * future completes, so it can be read the same way as a response of the blocking client.
+     * @param complianceTestMetaDataHolder
+     * @param method
+     * @return
+     * @throws ComplianceException
+     */
+    public static CompletableFuture<HttpResponse> executeAsync(
+            ComplianceTestMetaDataHolder complianceTestMetaDataHolder, HttpRequestBase method)
+            throws ComplianceException {
+        // waits here rather than in an interceptor, which would hold up an I/O dispatch thread
+        try {
+            TargetRateLimiter.acquire(method.getURI());
+        } catch (InterruptedIOException e) {
+            throw new ComplianceException(e.getMessage(), e);
+        }
+        final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        getHttpAsyncClient(complianceTestMetaDataHolder).execute(method, new FutureCallback<HttpResponse>() {
+            public void completed(HttpResponse response) {
+                future.complete(response);
+            }
+
+            public void failed(Exception e) {
+                future.completeExceptionally(e);
+            }
+
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    private static CloseableHttpAsyncClient buildHttpAsyncClient(
+            ComplianceTestMetaDataHolder complianceTestMetaDataHolder) throws ComplianceException {
+        Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register(ComplianceConstants.RequestCodeConstants.HTTP, NoopIOSessionStrategy.INSTANCE)
+                .register(ComplianceConstants.RequestCodeConstants.HTTPS,
+                        new SSLIOSessionStrategy(buildSSLContext(), allHostsValid))
+                .build();
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ComplianceConstants.HTTPClientConstants.IO_THREAD_COUNT)
+                .setConnectTimeout(complianceTestMetaDataHolder.getConnectTimeout())
+                .setSoTimeout(complianceTestMetaDataHolder.getSocketTimeout())
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig), sessionStrategyRegistry);
+        } catch (IOReactorException e) {
+            throw new ComplianceException("Error in setting up the http client");
+        }
+        connectionManager.setDefaultMaxPerRoute(complianceTestMetaDataHolder.getMaxConnectionsPerRoute());
+        connectionManager.setMaxTotal(complianceTestMetaDataHolder.getMaxTotalConnections());
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(buildRequestConfig(complianceTestMetaDataHolder))
+                .build();
+    }
+
+    private static String getConnectionKey(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+        return complianceTestMetaDataHolder.getMaxConnectionsPerRoute() + ":" +
+                complianceTestMetaDataHolder.getMaxTotalConnections() + ":" +
+                complianceTestMetaDataHolder.getConnectTimeout() + ":" +
+                complianceTestMetaDataHolder.getSocketTimeout() + ":" +
+                complianceTestMetaDataHolder.getConnectionRequestTimeout() + ":" +
+                complianceTestMetaDataHolder.getIdleConnectionTimeout();
+    }
+
+    private static RequestConfig buildRequestConfig(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+        return RequestConfig.custom()
+                .setConnectTimeout(complianceTestMetaDataHolder.getConnectTimeout())
+                .setSocketTimeout(complianceTestMetaDataHolder.getSocketTimeout())
+                .setConnectionRequestTimeout(complianceTestMetaDataHolder.getConnectionRequestTimeout())
+                .build();
+    }
+
+    private static SSLContext buildSSLContext() throws ComplianceException {
+        TrustStrategy trustAllStrategy = new TrustStrategy() {
+            public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+                return true;
+            }
+        };
+        SSLContextBuilder builder = new SSLContextBuilder();
+        try {
+            builder.loadTrustMaterial(trustAllStrategy);
+            return builder.build();
+        } catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException e) {
+            throw new ComplianceException("Error in setting up the http client");
+        }
     }
 
     public static HttpRequestBase setAuthorizationHeader (ComplianceTestMetaDataHolder complianceTestMetaDataHolder,
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.httpclient;
+
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This limits the rate of the requests sent to each host under test, across all the compliance runs. Each
+ * host has a token bucket refilled at scim2.compliance.rateLimit.requestsPerSecond, which holds up to
+ * scim2.compliance.rateLimit.burst tokens, so short bursts go out at once while the sustained rate stays
+ * bounded. A request without a token waits until its turn, in the order the requests arrived.
+ */
+public class TargetRateLimiter implements HttpRequestInterceptor {
+
+    private static final double REQUESTS_PER_SECOND = Double.parseDouble(System.getProperty(
+            ComplianceConstants.RateLimitConstants.REQUESTS_PER_SECOND_PROPERTY,
+            String.valueOf(ComplianceConstants.RateLimitConstants.DEFAULT_REQUESTS_PER_SECOND)));
+    private static final double BURST = Double.parseDouble(System.getProperty(
+            ComplianceConstants.RateLimitConstants.BURST_PROPERTY,
+            String.valueOf(ComplianceConstants.RateLimitConstants.DEFAULT_BURST)));
+
+    // context attribute marking a request whose turn was already waited for with acquire(URI)
+    public static final String ACQUIRED = "scim2.compliance.rateLimit.acquired";
+
+    private static final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Get the sustained rate the requests to each host are limited to.
+     * @return requests per second, 0 or less when not limited
+     */
+    public static double getRequestsPerSecond() {
+        return REQUESTS_PER_SECOND;
+    }
+
+    /**
+     * Wait for the turn of a request of the blocking client.
+     * @param request
+     * @param context
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws InterruptedIOException {
+        HttpClientContext clientContext = HttpClientContext.adapt(context);
+        HttpHost target = clientContext.getTargetHost();
+        if (target != null && !Boolean.TRUE.equals(clientContext.getAttribute(ACQUIRED))) {
+            acquire(target.getSchemeName(), target.getHostName(), target.getPort());
+        }
+    }
+
+    /**
+     * Wait for the turn of a request to the given URI.
+     * @param uri
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public static void acquire(URI uri) throws InterruptedIOException {
+        if (uri != null && uri.getHost() != null) {
+            acquire(uri.getScheme(), uri.getHost(), uri.getPort());
+        }
+    }
+
+    private static void acquire(String scheme, String host, int port) throws InterruptedIOException {
+        if (REQUESTS_PER_SECOND <= 0) {
+            return;
+        }
+        if (port < 0) {
+            port = ComplianceConstants.RequestCodeConstants.HTTPS.equalsIgnoreCase(scheme) ? 443 : 80;
+        }
+        String key = host.toLowerCase() + ":" + port;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new TokenBucket();
+            TokenBucket existing = buckets.putIfAbsent(key, bucket);
+            if (existing != null) {
+                bucket = existing;
+            }
+        }
+        long waitNanos = bucket.reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit of " + key);
+            }
+        }
+    }
+
+    /**
+     * The tokens of a host. Tokens may go negative: a request arriving without a token takes one in advance
+     * and waits for it to be refilled, so later requests queue up behind it.
+     */
+    private static class TokenBucket {
+
+        private double tokens = Math.max(1, BURST);
+        private long refilledAt = System.nanoTime();
+
+        /*
+         * Take a token, and return how long to wait until it is actually there.
+         */
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, BURST), tokens + (now - refilledAt) * REQUESTS_PER_SECOND / 1e9);
+            refilledAt = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / REQUESTS_PER_SECOND);
+        }
+    }
+}
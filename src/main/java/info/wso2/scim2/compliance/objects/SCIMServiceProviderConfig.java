@@ -39,4 +39,38 @@ public class SCIMServiceProviderConfig extends AbstractSCIMObject {
         Attribute patchAttribute  = getAttribute("bulk");
         return ((SimpleAttribute)(patchAttribute.getSubAttribute("supported"))).getBooleanValue();
     }
+
+    /**
+     * Get the maximum number of operations in a bulk request.
+     * @return the advertised value, or 0 if it is not advertised
+     * @throws CharonException
+     */
+    public int getBulkMaxOperations() throws CharonException {
+        Attribute bulkAttribute  = getAttribute("bulk");
+        return getIntegerValue((SimpleAttribute) bulkAttribute.getSubAttribute("maxOperations"));
+    }
+
+    /**
+     * Get the maximum payload size of a bulk request, in bytes.
+     * @return the advertised value, or 0 if it is not advertised
+     * @throws CharonException
+     */
+    public int getBulkMaxPayloadSize() throws CharonException {
+        Attribute bulkAttribute  = getAttribute("bulk");
+        return getIntegerValue((SimpleAttribute) bulkAttribute.getSubAttribute("maxPayloadSize"));
+    }
+
+    private int getIntegerValue(SimpleAttribute attribute) {
+        if (attribute == null || attribute.getValue() == null) {
+            return 0;
+        }
+        if (attribute.getValue() instanceof Number) {
+            return ((Number) attribute.getValue()).intValue();
+        }
+        try {
+            return Integer.parseInt(attribute.getValue().toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 }
\ No newline at end of file
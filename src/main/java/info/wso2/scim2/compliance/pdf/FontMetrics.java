@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.pdf;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This keeps the advance widths of the characters of a font, so text can be wrapped without asking PDFBox
+ * for the width of every substring. The widths of the Latin-1 characters are looked up once per font, the
+ * few other characters the report fonts can show are looked up when first used. The standard fonts have no
+ * kerning, hence the width of a text is the sum of the widths of its characters.
+ */
+public class FontMetrics {
+
+    private static final ConcurrentHashMap<PDFont, FontMetrics> metrics = new ConcurrentHashMap<>();
+
+    private final PDFont font;
+    // in thousandths of the font size
+    private final float[] latinWidths = new float[256];
+    private final ConcurrentHashMap<Character, Float> otherWidths = new ConcurrentHashMap<>();
+
+    private FontMetrics(PDFont font) throws IOException {
+        this.font = font;
+        for (char c = 0; c < latinWidths.length; c++) {
+            latinWidths[c] = measure(c);
+        }
+    }
+
+    /**
+     * Get the metrics of a font.
+     * @param font
+     * @return
+     * @throws IOException
+     */
+    public static FontMetrics getMetrics(PDFont font) throws IOException {
+        FontMetrics fontMetrics = metrics.get(font);
+        if (fontMetrics == null) {
+            fontMetrics = new FontMetrics(font);
+            FontMetrics existing = metrics.putIfAbsent(font, fontMetrics);
+            if (existing != null) {
+                fontMetrics = existing;
+            }
+        }
+        return fontMetrics;
+    }
+
+    /**
+     * Break a text into lines no wider than the given width, in one pass over the text. Lines are broken at
+     * the last space that fits, or within a word which does not fit in a line of its own, eg: a long JSON
+     * value. The spaces a line is broken at are dropped.
+     * @param text a text without line breaks
+     * @param fontSize
+     * @param width
+     * @param lines where the lines are added
+     * @throws IOException
+     */
+    public void wrap(String text, float fontSize, float width, List<String> lines) throws IOException {
+        float maxWidth = width * 1000 / fontSize;
+        int length = text.length();
+        int start = skipSpaces(text, 0);
+        while (start < length) {
+            float lineWidth = 0;
+            int lastSpace = -1;
+            int end = start;
+            while (end < length) {
+                char c = text.charAt(end);
+                float charWidth = getUnscaledWidth(c);
+                if (lineWidth + charWidth > maxWidth && end > start) {
+                    break;
+                }
+                if (c == ' ') {
+                    lastSpace = end;
+                }
+                lineWidth += charWidth;
+                end++;
+            }
+            if (end < length && text.charAt(end) != ' ' && lastSpace > start) {
+                end = lastSpace;
+            }
+            lines.add(trimEnd(text, start, end));
+            start = skipSpaces(text, end);
+        }
+    }
+
+    private float getUnscaledWidth(char c) throws IOException {
+        if (c < latinWidths.length) {
+            return latinWidths[c];
+        }
+        Float width = otherWidths.get(c);
+        if (width == null) {
+            width = measure(c);
+            otherWidths.put(c, width);
+        }
+        return width;
+    }
+
+    /*
+     * The standard fonts are shared by all the reports and cache the glyph widths in plain maps.
+     */
+    private float measure(char c) throws IOException {
+        synchronized (font) {
+            try {
+                return font.getStringWidth(String.valueOf(c));
+            } catch (IllegalArgumentException e) {
+                // not in the encoding of the font, such characters are not shown
+                return 0;
+            }
+        }
+    }
+
+    private static int skipSpaces(String text, int index) {
+        while (index < text.length() && text.charAt(index) <= ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static String trimEnd(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return text.substring(start, end);
+    }
+}
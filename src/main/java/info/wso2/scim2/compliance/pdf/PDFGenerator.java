@@ -17,6 +17,8 @@ package info.wso2.scim2.compliance.pdf;
 
 import info.wso2.scim2.compliance.entities.Result;
 import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -26,6 +28,7 @@ import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
 
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -33,32 +36,35 @@ import java.util.*;
 import java.util.List;
 
 /**
- * This class handle the PDF report generation for the test suite.
+ * This class handle the PDF report generation for the test suite. Each report has its own generator, so
+ * reports of concurrent runs are generated independently. Results are written one after the other as they
+ * are added, starting a new page whenever a result does not fit in the current one, and the document
+ * keeps no more than a bounded amount of its content on the heap, the rest in a scratch file.
  */
-public class PDFGenerator {
+public class PDFGenerator implements Closeable {
 
-    private static PDDocument document = null;
+    private static final PDFont pdfFont = PDType1Font.HELVETICA;
+    private static final float fontSize = 10;
+    private static final float leading = 1.5f * fontSize;
+    private static final float margin = 42;
+
+    private final PDDocument document;
+    private PDPageContentStream contentStream;
+    private PDFont currentFont;
+    private float currentFontSize;
+    private float startX;
+    private float startY;
+    private float width;
+    // vertical position of the current line on the current page
+    private float y;
 
     /**
-     * Init report generation.
-     * @param finalResults
+     * Initialize an empty report.
+     * @throws IOException
      */
-    private static void init(Result finalResults){
-        document = new PDDocument();
-        if (finalResults.getErrorMessage() != ""){
-            //Creating a blank page
-            PDPage blankPage = new PDPage();
-            //Adding the blank page to the document
-            document.addPage(blankPage);
-
-        } else {
-            for (int i = 0; i < finalResults.getResults().size(); i++) {
-                //Creating a blank page
-                PDPage blankPage = new PDPage();
-                //Adding the blank page to the document
-                document.addPage(blankPage);
-            }
-        }
+    public PDFGenerator() throws IOException {
+        document = new PDDocument(MemoryUsageSetting.setupMixed(
+                ComplianceConstants.ReportConstants.MAX_MAIN_MEMORY_BYTES));
     }
 
     /**
@@ -69,133 +75,169 @@ public class PDFGenerator {
      * @throws IOException
      */
     public static String GeneratePDFResults(Result finalResults, String fullPath) throws IOException {
-        init(finalResults);
-        int pageNo = 0;
-        for (TestResult testResult : finalResults.getResults()){
-            //Retrieving the pages of the document
-            PDPage page = document.getPage(pageNo);
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-
-            PDFont pdfFont = PDType1Font.HELVETICA;
-            float fontSize = 10;
-            float smallFontSize = 8;
-            float leading = 1.5f * fontSize;
-
-            PDRectangle mediabox = page.getMediaBox();
-            float margin = 42;
-            float width = mediabox.getWidth() - 2 * margin;
-            float startX = mediabox.getLowerLeftX() + margin;
-            float startY = mediabox.getUpperRightY() - margin;
-
-            ArrayList<String> toServer = new ArrayList<>();
-            ArrayList<String> fromServer = new ArrayList<>();
-            ArrayList<String> subTests = new ArrayList<>();
-            if (testResult.getWire() != null){
-                toServer = removeUnsupportedCharacters(testResult.getWire().getToServer());
-                fromServer = removeUnsupportedCharacters(testResult.getWire().getFromServer());
-                subTests = removeUnsupportedCharacters(testResult.getWire().getTests());
+        try (PDFGenerator pdfGenerator = new PDFGenerator()) {
+            for (TestResult testResult : finalResults.getResults()) {
+                pdfGenerator.addResult(testResult);
             }
+            return pdfGenerator.save(fullPath);
+        }
+    }
 
-            List testName = getLines(testResult.getName(), fontSize, pdfFont, width);
-            List testMessage = getLines(testResult.getMessage(), fontSize, pdfFont, width);
-            List testLabel = getLines(testResult.getStatusText(), fontSize, pdfFont, width);
-            List responseBody = new ArrayList();
-            List requestBody = new ArrayList();
-            if(!toServer.isEmpty()){
-                requestBody = getLines( toServer.get(toServer.size()-1), fontSize, pdfFont, width);
-                toServer.remove(toServer.size()-1);
-            }
-            if(!fromServer.isEmpty()){
-                responseBody = getLines( fromServer.get(fromServer.size()-1), fontSize, pdfFont, width);
-                fromServer.remove(fromServer.size()-1);
-            }
-            List emptyLine = new ArrayList();
-            emptyLine.add(" ");
+    /**
+     * Write a test result, starting on a new page.
+     * @param testResult
+     * @throws IOException
+     */
+    public void addResult(TestResult testResult) throws IOException {
+        newPage();
 
-            //Drawing a rectangle
-            contentStream.addRect(startX, startY - 5 , width, 1);
+        ArrayList<String> toServer = new ArrayList<>();
+        ArrayList<String> fromServer = new ArrayList<>();
+        ArrayList<String> subTests = new ArrayList<>();
+        if (testResult.getWire() != null){
+            toServer = removeUnsupportedCharacters(testResult.getWire().getToServer());
+            fromServer = removeUnsupportedCharacters(testResult.getWire().getFromServer());
+            subTests = removeUnsupportedCharacters(testResult.getWire().getTests());
+        }
 
-            //Begin text printing
-            contentStream.fill();
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.TIMES_ITALIC, fontSize);
-            contentStream.newLineAtOffset(startX, startY);
+        List<String> testName = getLines(testResult.getName(), fontSize, pdfFont, width);
+        List<String> testMessage = getLines(testResult.getMessage(), fontSize, pdfFont, width);
+        List<String> testLabel = getLines(testResult.getStatusText(), fontSize, pdfFont, width);
+        List<String> responseBody = new ArrayList<>();
+        List<String> requestBody = new ArrayList<>();
+        if(!toServer.isEmpty()){
+            requestBody = getLines( toServer.get(toServer.size()-1), fontSize, pdfFont, width);
+            toServer.remove(toServer.size()-1);
+        }
+        if(!fromServer.isEmpty()){
+            responseBody = getLines( fromServer.get(fromServer.size()-1), fontSize, pdfFont, width);
+            fromServer.remove(fromServer.size()-1);
+        }
 
-            contentStream.showText("SCIM 2.0 Compliance Test Suite - Auto Generated Test Report");
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
+        //Drawing a rectangle
+        contentStream.addRect(startX, startY - 5 , width, 1);
 
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
-            contentStream.showText("Test Case Name : ");
-            contentStream.setFont(PDType1Font.COURIER, fontSize);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, testName);
+        //Begin text printing
+        contentStream.fill();
+        contentStream.beginText();
+        setFont(PDType1Font.TIMES_ITALIC, fontSize);
+        contentStream.newLineAtOffset(startX, startY);
 
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
-            contentStream.showText("Test Case Errors : ");
-            contentStream.setFont(PDType1Font.COURIER, fontSize);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, testMessage);
+        contentStream.showText("SCIM 2.0 Compliance Test Suite - Auto Generated Test Report");
+        emptyLine();
+        emptyLine();
 
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
-            contentStream.showText("Test Case Status : ");
-            contentStream.setFont(PDType1Font.COURIER, fontSize);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, testLabel);
+        printSection("Test Case Name : ", testName);
+        printSection("Test Case Errors : ", testMessage);
+        printSection("Test Case Status : ", testLabel);
 
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
-            contentStream.showText(("To Server : "));
-            contentStream.setFont(PDType1Font.COURIER, fontSize);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
-            printResult(contentStream, smallFontSize, pdfFont, leading, startX, startY, toServer);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, requestBody);
+        setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
+        contentStream.showText(("To Server : "));
+        setFont(PDType1Font.COURIER, fontSize);
+        emptyLine();
+        printResult(toServer);
+        printResult(requestBody);
 
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
-            contentStream.showText("From Server : ");
-            contentStream.setFont(PDType1Font.COURIER, fontSize);
-            printResult(contentStream, smallFontSize, pdfFont, leading, startX, startY, fromServer);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, responseBody);
+        setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
+        contentStream.showText("From Server : ");
+        setFont(PDType1Font.COURIER, fontSize);
+        printResult(fromServer);
+        printResult(responseBody);
 
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
-            contentStream.showText("Sub Tests Performed : ");
-            contentStream.setFont(PDType1Font.COURIER, fontSize);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, emptyLine);
-            printResult(contentStream, fontSize, pdfFont, leading, startX, startY, subTests);
+        printSection("Sub Tests Performed : ", subTests);
 
-            //Ending the content stream
-            contentStream.endText();
-            contentStream.close();
-            pageNo ++;
+        //Ending the content stream
+        contentStream.endText();
+        contentStream.close();
+        contentStream = null;
+    }
+
+    /**
+     * Save the report in the given directory, under a name no other report has.
+     * @param directory
+     * @return the path of the report
+     * @throws IOException
+     */
+    public String save(String directory) throws IOException {
+        if (document.getNumberOfPages() == 0) {
+            //Adding a blank page, eg: for a run which failed before any test
+            document.addPage(new PDPage());
         }
-        //save the document
-        Calendar cal = Calendar.getInstance();
         SimpleDateFormat sdf = new SimpleDateFormat("HHmmss");
-        String url = fullPath + "\\" + sdf.format(cal.getTime())+ ".pdf";
-        document.save(new File(url));
+        File report = File.createTempFile(sdf.format(Calendar.getInstance().getTime()) + "-", ".pdf",
+                new File(directory));
+        document.save(report);
+        return report.getPath();
+    }
 
-        //Closing the document
+    /**
+     * Close the document, dropping its scratch file.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (contentStream != null) {
+            contentStream.close();
+        }
         document.close();
-        return url;
+    }
+
+    private void newPage() throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        contentStream = new PDPageContentStream(document, page);
+
+        PDRectangle mediabox = page.getMediaBox();
+        width = mediabox.getWidth() - 2 * margin;
+        startX = mediabox.getLowerLeftX() + margin;
+        startY = mediabox.getUpperRightY() - margin;
+        y = startY;
+    }
+
+    /*
+     * Continue the text of the current result on a new page.
+     */
+    private void overflow() throws IOException {
+        contentStream.endText();
+        contentStream.close();
+        newPage();
+        contentStream.beginText();
+        contentStream.setFont(currentFont, currentFontSize);
+        contentStream.newLineAtOffset(startX, startY);
+    }
+
+    private void setFont(PDFont font, float size) throws IOException {
+        currentFont = font;
+        currentFontSize = size;
+        contentStream.setFont(font, size);
+    }
 
+    private void printSection(String title, List<String> lines) throws IOException {
+        setFont(PDType1Font.HELVETICA_BOLD_OBLIQUE, fontSize);
+        contentStream.showText(title);
+        setFont(PDType1Font.COURIER, fontSize);
+        emptyLine();
+        printResult(lines);
+    }
+
+    private void emptyLine() throws IOException {
+        printResult(Collections.singletonList(" "));
     }
 
     /**
-     * Print the results to PDF.
-     * @param contentStream
-     * @param fontSize
-     * @param pdfFont
-     * @param leading
-     * @param startX
-     * @param startY
+     * Print the results to PDF, moving on to a new page at the bottom of the current one.
      * @param lines
      * @throws IOException
      */
-    public static void printResult(PDPageContentStream contentStream, float fontSize,
-                                   PDFont pdfFont, float leading, float startX, float startY, List<String> lines)
-            throws IOException {
+    private void printResult(List<String> lines) throws IOException {
         for (String line : lines) {
             contentStream.showText(line);
-            contentStream.newLineAtOffset(0, -leading);
+            if (y - leading < margin) {
+                overflow();
+            } else {
+                contentStream.newLineAtOffset(0, -leading);
+                y -= leading;
+            }
         }
     }
 
@@ -210,51 +252,15 @@ public class PDFGenerator {
      */
     private static List<String> getLines(String text, float fontSize, PDFont pdfFont, float width)
             throws IOException {
-        width = width - 150 ;
         java.util.List<String> lines = new ArrayList<String>();
-        int lastSpace = -1;
-        while (text.length() > 0) {
-            int spaceIndex = text.indexOf(' ', lastSpace + 1);
-            if (spaceIndex < 0)
-                spaceIndex = text.length();
-            String subString = text.substring(0, spaceIndex);
-            float size = fontSize * pdfFont.getStringWidth(subString) / 1000;
-            if (size > width) {
-                float requiredSize = (width * 1000)/fontSize;
-                int characterSize = getCharacterCount(requiredSize, subString, pdfFont);
-                //if (lastSpace < 0)
-                lastSpace = characterSize;
-                subString = text.substring(0, lastSpace);
-                lines.add(subString);
-                text = text.substring(lastSpace).trim();
-                lastSpace = -1;
-            } else if (spaceIndex == text.length()) {
-                lines.add(text);
-                text = "";
-            } else {
-                lastSpace = spaceIndex;
-            }
+        FontMetrics fontMetrics = FontMetrics.getMetrics(pdfFont);
+        // line breaks and other characters the font can not show split the text into lines first
+        for (String paragraph : removeUnsupportedCharacters(text)) {
+            fontMetrics.wrap(paragraph, fontSize, width - 150, lines);
         }
         return lines;
     }
 
-    /**
-     * This return the character count of a given text.
-     * @param requiredSize
-     * @param subString
-     * @param pdfFont
-     * @return
-     * @throws IOException
-     */
-    private static int getCharacterCount(float requiredSize, String subString, PDFont pdfFont) throws IOException {
-        double factor = 0.95;
-        String string  = subString;
-        while (pdfFont.getStringWidth(string) > requiredSize) {
-            string = string.substring(0, (int) Math.round(string.length()*factor));
-        }
-        return string.length();
-    }
-
     /**
      * This removes the unsupported characters from the text.
      * @param test
@@ -276,4 +282,4 @@ public class PDFGenerator {
         return textToBeShown;
     }
 
-}
\ No newline at end of file
+}
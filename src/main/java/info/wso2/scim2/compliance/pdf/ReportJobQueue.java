@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.pdf;
+
+import info.wso2.scim2.compliance.entities.ReportStatus;
+import info.wso2.scim2.compliance.entities.Result;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This generates the PDF reports of the compliance runs in the background, so a run returns its results
+ * without waiting for the report. The reports are generated by a few workers from a bounded queue. When a
+ * spike of runs fills the queue, the reports of the runs which do not fit are given up straight away
+ * instead of holding the runs back. Only the most recent jobs are kept, together with their files.
+ */
+public class ReportJobQueue {
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            ComplianceConstants.ReportConstants.WORKERS, ComplianceConstants.ReportConstants.WORKERS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(ComplianceConstants.ReportConstants.QUEUE_CAPACITY),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "compliance-report-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // id -> job, oldest first
+    private static final LinkedHashMap<String, Job> jobs = new LinkedHashMap<String, Job>() {
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            if (size() > ComplianceConstants.ReportConstants.MAX_RETAINED_JOBS) {
+                eldest.getValue().discard();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Queue the generation of the report of a run, and link the results to the report.
+     * @param finalResults
+     * @param directory where the report is saved
+     * @return the id of the job
+     */
+    public static String submit(final Result finalResults, final String directory) {
+        final Job job = new Job(UUID.randomUUID().toString());
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        finalResults.setReportJobId(job.id);
+        finalResults.setReportLink(ComplianceConstants.ReportConstants.REPORT_PATH + job.id + "/file");
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    job.generate(finalResults, directory);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            job.fail("Too many reports are being generated at the moment.");
+        }
+        return job.id;
+    }
+
+    /**
+     * Get the status of a job.
+     * @param id
+     * @return the status, or null if there is no such job
+     */
+    public static ReportStatus getStatus(String id) {
+        Job job = getJob(id);
+        return job == null ? null : job.getStatus();
+    }
+
+    /**
+     * Get the report generated by a job.
+     * @param id
+     * @return the report, or null if there is no such job or it is not done
+     */
+    public static File getReport(String id) {
+        Job job = getJob(id);
+        return job == null ? null : job.report;
+    }
+
+    private static Job getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * A report generation job.
+     */
+    private static class Job {
+
+        private final String id;
+        private volatile String status = ComplianceConstants.ReportConstants.PENDING;
+        private volatile String errorMessage = "";
+        private volatile File report;
+        private volatile boolean discarded;
+
+        private Job(String id) {
+            this.id = id;
+        }
+
+        private void generate(Result finalResults, String directory) {
+            if (discarded) {
+                return;
+            }
+            status = ComplianceConstants.ReportConstants.RUNNING;
+            try {
+                File generated = new File(PDFGenerator.GeneratePDFResults(finalResults, directory));
+                synchronized (this) {
+                    if (discarded) {
+                        generated.delete();
+                        return;
+                    }
+                    report = generated;
+                    status = ComplianceConstants.ReportConstants.DONE;
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e.getMessage());
+            }
+        }
+
+        private void fail(String message) {
+            errorMessage = message;
+            status = ComplianceConstants.ReportConstants.FAILED;
+        }
+
+        /*
+         * The job is no longer kept, hence nobody can download its report any more.
+         */
+        private synchronized void discard() {
+            discarded = true;
+            if (report != null) {
+                report.delete();
+            }
+        }
+
+        private ReportStatus getStatus() {
+            String link = ComplianceConstants.ReportConstants.DONE.equals(status)
+                    ? ComplianceConstants.ReportConstants.REPORT_PATH + id + "/file" : "";
+            return new ReportStatus(id, status, errorMessage, link);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.JobProgress;
+import info.wso2.scim2.compliance.entities.Result;
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.pdf.ReportJobQueue;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A compliance run executed in the background, once the job manager has room for it. The results of each
+ * suite are kept as the suite completes, so a client can follow the run by asking for the results it has
+ * not seen yet.
+ */
+public class ComplianceJob implements TestSuiteScheduler.ResultListener {
+
+    private final String id;
+    private final ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private final String reportDirectory;
+    // in completion order
+    private final ArrayList<TestResult> completedResults = new ArrayList<>();
+    private volatile String status = ComplianceConstants.JobConstants.QUEUED;
+    private volatile Result result;
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * Initialize.
+     * @param id
+     * @param complianceTestMetaDataHolder
+     * @param reportDirectory where the report of the run is saved
+     */
+    public ComplianceJob(String id, ComplianceTestMetaDataHolder complianceTestMetaDataHolder,
+                         String reportDirectory) {
+        this.id = id;
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+        this.reportDirectory = reportDirectory;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Run the test suites, and queue the report of the run.
+     */
+    public void run() {
+        status = ComplianceConstants.JobConstants.RUNNING;
+        try {
+            Result finalResults = ComplianceRunner.run(complianceTestMetaDataHolder, this);
+            ReportJobQueue.submit(finalResults, reportDirectory);
+            complete(ComplianceConstants.JobConstants.DONE, finalResults);
+        } catch (ComplianceException e) {
+            complete(ComplianceConstants.JobConstants.FAILED, new Result(e.getDetail()));
+        } catch (RuntimeException e) {
+            complete(ComplianceConstants.JobConstants.FAILED, new Result(e.getMessage()));
+        } finally {
+            // eg: an Error, which must not leave the job running and its waiters blocked forever
+            if (completed.getCount() > 0) {
+                complete(ComplianceConstants.JobConstants.FAILED, new Result("The compliance run was aborted."));
+            }
+        }
+    }
+
+    /**
+     * Give up the run without running it.
+     * @param message why the run was given up
+     */
+    public void reject(String message) {
+        complete(ComplianceConstants.JobConstants.FAILED, new Result(message));
+    }
+
+    /**
+     * Wait until the run is over.
+     * @return the final result
+     * @throws InterruptedException
+     */
+    public Result await() throws InterruptedException {
+        completed.await();
+        return result;
+    }
+
+    @Override
+    public synchronized void suiteCompleted(String name, List<TestResult> results) {
+        completedResults.addAll(results);
+    }
+
+    /**
+     * Get the progress of the run.
+     * @param from number of results the client has already seen
+     * @return
+     */
+    public JobProgress getProgress(int from) {
+        // once the run is over, all the results have been added and the final result is set
+        String currentStatus = status;
+        ArrayList<TestResult> newResults;
+        int next;
+        synchronized (this) {
+            from = Math.max(0, Math.min(from, completedResults.size()));
+            newResults = new ArrayList<>(completedResults.subList(from, completedResults.size()));
+            next = completedResults.size();
+        }
+        Result finalResults = ComplianceConstants.JobConstants.DONE.equals(currentStatus)
+                || ComplianceConstants.JobConstants.FAILED.equals(currentStatus) ? result : null;
+        return new JobProgress(id, currentStatus, newResults, next, finalResults);
+    }
+
+    private void complete(String completedStatus, Result finalResults) {
+        result = finalResults;
+        status = completedStatus;
+        completed.countDown();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This starts the compliance run jobs and keeps the most recent ones, so their clients can follow them. At
+ * most scim2.compliance.maxConcurrentRuns runs are executed at the same time, whichever way they were
+ * requested, and up to scim2.compliance.maxQueuedRuns more wait for their turn in the order they arrived.
+ * Runs beyond that are rejected straight away. The requests of all the runs to the same host are rate
+ * limited together by the HTTP client.
+ */
+public class ComplianceJobManager {
+
+    private static final int MAX_CONCURRENT_RUNS = Integer.getInteger(
+            ComplianceConstants.JobConstants.MAX_CONCURRENT_RUNS_PROPERTY,
+            ComplianceConstants.JobConstants.DEFAULT_MAX_CONCURRENT_RUNS);
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_CONCURRENT_RUNS, MAX_CONCURRENT_RUNS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(Integer.getInteger(
+                    ComplianceConstants.JobConstants.MAX_QUEUED_RUNS_PROPERTY,
+                    ComplianceConstants.JobConstants.DEFAULT_MAX_QUEUED_RUNS)),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "compliance-run-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // id -> job, oldest first
+    private static final LinkedHashMap<String, ComplianceJob> jobs = new LinkedHashMap<String, ComplianceJob>() {
+        protected boolean removeEldestEntry(Map.Entry<String, ComplianceJob> eldest) {
+            return size() > ComplianceConstants.JobConstants.MAX_RETAINED_JOBS;
+        }
+    };
+
+    /**
+     * Queue a compliance run.
+     * @param complianceTestMetaDataHolder
+     * @param reportDirectory where the report of the run is saved
+     * @return the job, already failed if there was no room for it
+     */
+    public static ComplianceJob submit(ComplianceTestMetaDataHolder complianceTestMetaDataHolder,
+                                       String reportDirectory) {
+        final ComplianceJob job = new ComplianceJob(UUID.randomUUID().toString(), complianceTestMetaDataHolder,
+                reportDirectory);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        try {
+            executor.execute(job::run);
+        } catch (RejectedExecutionException e) {
+            job.reject("Too many compliance runs are in progress at the moment. Please try again later.");
+        }
+        return job;
+    }
+
+    /**
+     * Get a job.
+     * @param id
+     * @return the job, or null if there is no such job
+     */
+    public static ComplianceJob getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.JobProgress;
+import info.wso2.scim2.compliance.entities.Result;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+
+/**
+ * This starts compliance runs in the background and serves their progress. Unlike /test2 a run returns
+ * straight away with the id of its job, and the client asks for the results completed since its last
+ * request until the run is over, so long runs are not cut off by proxy or browser timeouts.
+ */
+@Path("/jobs")
+public class ComplianceJobs {
+
+    @Context ServletContext context;
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public JobProgress startRun(@FormParam(ComplianceConstants.RequestCodeConstants.URL) String url,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.USERNAME) String username,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.PASSWORD) String password,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.CLIENT_ID) String clientId,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.CLIENT_SECRET)
+                                        String clientSecret,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.AUTHORIZATION_SERVER)
+                                        String authorizationServer,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.AUTHORIZATION_HEADER)
+                                        String authorizationHeader,
+                                @FormParam(ComplianceConstants.RequestCodeConstants.AUTHORIZATION_METHOD)
+                                        String authMethod) {
+
+        ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+        try {
+            complianceTestMetaDataHolder = ComplianceRunner.createMetaDataHolder(url, username, password, clientId,
+                    clientSecret, authorizationServer, authorizationHeader, authMethod);
+        } catch (ComplianceException e) {
+            return new JobProgress("", ComplianceConstants.JobConstants.FAILED, new ArrayList<>(), 0,
+                    new Result(e.getDetail()));
+        }
+        return ComplianceJobManager.submit(complianceTestMetaDataHolder, context.getRealPath("/WEB-INF"))
+                .getProgress(0);
+    }
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getProgress(@PathParam("id") String id, @QueryParam("from") @DefaultValue("0") int from) {
+        ComplianceJob job = ComplianceJobManager.getJob(id);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(job.getProgress(from)).build();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.Result;
+import info.wso2.scim2.compliance.entities.Statistics;
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.CriticalComplianceException;
+import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
+import info.wso2.scim2.compliance.tests.*;
+import info.wso2.scim2.compliance.tests.common.CleanupQueue;
+import info.wso2.scim2.compliance.tests.common.SharedTestFixture;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.commons.validator.routines.UrlValidator;
+import org.wso2.charon3.core.exceptions.CharonException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * This runs the test suites of a compliance run, independent of how the run was requested.
+ */
+public class ComplianceRunner {
+
+    /**
+     * Create the configurations of a run from what the user entered.
+     * @param url
+     * @param username
+     * @param password
+     * @param clientId
+     * @param clientSecret
+     * @param authorizationServer
+     * @param authorizationHeader
+     * @param authMethod
+     * @return
+     * @throws ComplianceException if the configurations are not valid
+     */
+    public static ComplianceTestMetaDataHolder createMetaDataHolder(String url, String username, String password,
+                                                                    String clientId, String clientSecret,
+                                                                    String authorizationServer,
+                                                                    String authorizationHeader, String authMethod)
+            throws ComplianceException {
+
+        if (url == null || url.isEmpty()) {
+            ComplianceException BadRequestException = new ComplianceException();
+            BadRequestException.setDetail("URL can not be empty.");
+            throw BadRequestException;
+        }
+
+        //TODO : Add other authentication logging checks as well.
+        if ((username.isEmpty() || password.isEmpty())) {
+            ComplianceException BadRequestException = new ComplianceException();
+            BadRequestException.setDetail("Authorization with service provider failed.");
+            throw BadRequestException;
+        }
+
+        // Valid schemas
+        String[] schemes = {ComplianceConstants.RequestCodeConstants.HTTP,
+                ComplianceConstants.RequestCodeConstants.HTTPS};
+
+        UrlValidator urlValidator = new UrlValidator(schemes);
+
+        //TODO : Remove the comment when deployed
+        /*
+        if (!urlValidator.isValid(url)) {
+            ComplianceException BadRequestException = new ComplianceException();
+            BadRequestException.setDetail("Invalid URL had been entered.");
+            throw BadRequestException;
+        }
+        */
+
+        // create a complianceTestMetaDataHolder to use to hold the test suite configurations
+        ComplianceTestMetaDataHolder complianceTestMetaDataHolder = new ComplianceTestMetaDataHolder();
+        complianceTestMetaDataHolder.setUrl(url);
+        complianceTestMetaDataHolder.setUsername(username);
+        complianceTestMetaDataHolder.setPassword(password);
+        complianceTestMetaDataHolder.setAuthorization_server(authorizationServer);
+        complianceTestMetaDataHolder.setAuthorization_header(authorizationHeader);
+        complianceTestMetaDataHolder.setAuthorization_method(authMethod);
+        complianceTestMetaDataHolder.setClient_id(clientId);
+        complianceTestMetaDataHolder.setClient_secret(clientSecret);
+        return complianceTestMetaDataHolder;
+    }
+
+    /**
+     * Run all the test suites.
+     * @param complianceTestMetaDataHolder
+     * @param resultListener notified of the results of each suite as it completes, may be null
+     * @return the results, in the order of the suites
+     * @throws ComplianceException
+     */
+    public static Result run(ComplianceTestMetaDataHolder complianceTestMetaDataHolder,
+                             TestSuiteScheduler.ResultListener resultListener) throws ComplianceException {
+
+        // This is to keep the test results
+        ArrayList<TestResult> results = new ArrayList<TestResult>();
+
+        // Schema -> Config -> everything else. Me Test creates the same default user as User Test,
+        // hence it has to wait for User Test to clean up.
+        TestSuiteScheduler scheduler = new TestSuiteScheduler();
+        scheduler.setResultListener(resultListener);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.SCHEMA_TEST, () -> {
+            try {
+                return new SchemaTest(complianceTestMetaDataHolder).performTest();
+            } catch (CriticalComplianceException e) {
+                return new ArrayList<>(Collections.singletonList(e.getResult()));
+            }
+        });
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.CONFIG_TEST, () -> {
+            try {
+                return new ConfigTest(complianceTestMetaDataHolder).performTest();
+            } catch (CriticalComplianceException e) {
+                return new ArrayList<>(Collections.singletonList(e.getResult()));
+            }
+        }, ComplianceConstants.ExecutionConstants.SCHEMA_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.USER_TEST,
+                () -> new UserTest(complianceTestMetaDataHolder).performTest(),
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.GROUP_TEST,
+                () -> new GroupTest(complianceTestMetaDataHolder).performTest(),
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.ME_TEST,
+                () -> new MeTest(complianceTestMetaDataHolder).performTest(),
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST,
+                ComplianceConstants.ExecutionConstants.USER_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.RESOURCE_TYPE_TEST, () -> {
+            try {
+                return new ResourceTypeTest(complianceTestMetaDataHolder).performTest();
+            } catch (CriticalComplianceException e) {
+                return new ArrayList<>(Collections.singletonList(e.getResult()));
+            }
+        }, ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.LIST_TEST,
+                () -> new ListTest(complianceTestMetaDataHolder).performTest(),
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.FILTER_TEST,
+                () -> new FilterTest(complianceTestMetaDataHolder).performTest(),
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.PAGINATION_TEST,
+                () -> new PaginationTest(complianceTestMetaDataHolder).performTest(),
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.SORT_TEST, () -> {
+            SCIMServiceProviderConfig scimServiceProviderConfig =
+                    complianceTestMetaDataHolder.getScimServiceProviderConfig();
+            try {
+                if (scimServiceProviderConfig != null && scimServiceProviderConfig.getSortSupported()) {
+                    return new SortTest(complianceTestMetaDataHolder).performTest();
+                }
+            } catch (CharonException e) {
+                throw new ComplianceException(e.getDetail());
+            }
+            return new ArrayList<>(Collections.singletonList(
+                    new TestResult(TestResult.SKIPPED, "Sort Test", "Skipped", null)));
+        }, ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.BULK_TEST, () -> {
+            SCIMServiceProviderConfig scimServiceProviderConfig =
+                    complianceTestMetaDataHolder.getScimServiceProviderConfig();
+            try {
+                if (scimServiceProviderConfig != null && scimServiceProviderConfig.getBulkSupported()) {
+                    return new BulkTest(complianceTestMetaDataHolder).performTest();
+                }
+            } catch (CharonException e) {
+                throw new ComplianceException(e.getDetail());
+            }
+            return new ArrayList<>(Collections.singletonList(
+                    new TestResult(TestResult.SKIPPED, "Bulk Test", "Skipped", null)));
+        }, ComplianceConstants.ExecutionConstants.CONFIG_TEST);
+        // the load of the performance test would skew the other suites, hence it runs alone after all of them.
+        // The opt-in suites are scheduled even when disabled, since the later ones depend on the earlier ones
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.PERFORMANCE_TEST, () -> {
+            if (PerformanceTest.isEnabled()) {
+                return new PerformanceTest(complianceTestMetaDataHolder).performTest();
+            }
+            // opt-in, so a default run does not report it at all
+            return new ArrayList<>();
+        }, ComplianceConstants.ExecutionConstants.SCHEMA_TEST,
+                ComplianceConstants.ExecutionConstants.CONFIG_TEST,
+                ComplianceConstants.ExecutionConstants.USER_TEST,
+                ComplianceConstants.ExecutionConstants.GROUP_TEST,
+                ComplianceConstants.ExecutionConstants.ME_TEST,
+                ComplianceConstants.ExecutionConstants.RESOURCE_TYPE_TEST,
+                ComplianceConstants.ExecutionConstants.LIST_TEST,
+                ComplianceConstants.ExecutionConstants.FILTER_TEST,
+                ComplianceConstants.ExecutionConstants.PAGINATION_TEST,
+                ComplianceConstants.ExecutionConstants.SORT_TEST,
+                ComplianceConstants.ExecutionConstants.BULK_TEST);
+        // seeds its own data set, which would skew the performance test, hence it runs after it
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.PAGINATION_SCALING_TEST, () -> {
+            if (PaginationScalingTest.isEnabled()) {
+                return new PaginationScalingTest(complianceTestMetaDataHolder).performTest();
+            }
+            return new ArrayList<>();
+        }, ComplianceConstants.ExecutionConstants.PERFORMANCE_TEST);
+        // grows its own data set, hence it runs after the pagination scaling test
+        scheduler.addSuite(ComplianceConstants.ExecutionConstants.FILTER_BENCHMARK_TEST, () -> {
+            if (FilterBenchmarkTest.isEnabled()) {
+                return new FilterBenchmarkTest(complianceTestMetaDataHolder).performTest();
+            }
+            return new ArrayList<>();
+        }, ComplianceConstants.ExecutionConstants.PAGINATION_SCALING_TEST);
+
+        // leftovers of interrupted runs against the same service provider go first
+        CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        cleanupQueue.reap();
+        // they have fixed names, eg: the default user, which the suites create again
+        cleanupQueue.awaitInFlight();
+        // the run keeps the shared data set of the query test classes alive until all the suites are done
+        SharedTestFixture sharedTestFixture = complianceTestMetaDataHolder.getSharedTestFixture();
+        sharedTestFixture.acquire();
+        try {
+            results.addAll(scheduler.run());
+        } finally {
+            try {
+                sharedTestFixture.release();
+            } finally {
+                // whatever can not be deleted now stays in the cleanup journal for the next run
+                if (!cleanupQueue.drain()) {
+                    results.add(new TestResult(TestResult.ERROR, "Clean Up",
+                            "Could not delete the resources at url " + String.join(", ",
+                                    cleanupQueue.getRemaining()), null));
+                }
+            }
+        }
+
+        Statistics statistics = new Statistics();
+        for (TestResult result : results) {
+
+            switch (result.getStatus()) {
+                case TestResult.ERROR:
+                    statistics.incFailed();
+                    break;
+                case TestResult.SUCCESS:
+                    statistics.incSuccess();
+                    break;
+                case TestResult.SKIPPED:
+                    statistics.incSkipped();
+                    break;
+            }
+        }
+        return new Result(statistics, results);
+    }
+}
@@ -19,6 +19,9 @@ package info.wso2.scim2.compliance.protocol;
 import info.wso2.scim2.compliance.objects.SCIMResourceType;
 import info.wso2.scim2.compliance.objects.SCIMSchema;
 import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
+import info.wso2.scim2.compliance.tests.common.CleanupQueue;
+import info.wso2.scim2.compliance.tests.common.SharedTestFixture;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
 
 /**
  * This contains the meta data that need to configure the test suite.
@@ -36,6 +39,36 @@ public class ComplianceTestMetaDataHolder {
     private SCIMServiceProviderConfig scimServiceProviderConfig;
     private SCIMResourceType scimResourceType;
     private SCIMSchema scimSchema;
+    private int maxConnectionsPerRoute = ComplianceConstants.HTTPClientConstants.MAX_CONNECTIONS_PER_ROUTE;
+    private int maxTotalConnections = ComplianceConstants.HTTPClientConstants.MAX_TOTAL_CONNECTIONS;
+    private int connectTimeout = ComplianceConstants.HTTPClientConstants.CONNECT_TIMEOUT;
+    private int socketTimeout = ComplianceConstants.HTTPClientConstants.SOCKET_TIMEOUT;
+    private int connectionRequestTimeout = ComplianceConstants.HTTPClientConstants.CONNECTION_REQUEST_TIMEOUT;
+    private int idleConnectionTimeout = ComplianceConstants.HTTPClientConstants.IDLE_CONNECTION_TIMEOUT;
+    private SharedTestFixture sharedTestFixture;
+    private CleanupQueue cleanupQueue;
+
+    /**
+     * Get the data set shared by the query test classes of this run, creating it on first use.
+     * @return
+     */
+    public synchronized SharedTestFixture getSharedTestFixture() {
+        if (sharedTestFixture == null) {
+            sharedTestFixture = new SharedTestFixture(this);
+        }
+        return sharedTestFixture;
+    }
+
+    /**
+     * Get the queue deleting the resources created in this run, creating it on first use.
+     * @return
+     */
+    public synchronized CleanupQueue getCleanupQueue() {
+        if (cleanupQueue == null) {
+            cleanupQueue = new CleanupQueue(this);
+        }
+        return cleanupQueue;
+    }
 
     public SCIMServiceProviderConfig getScimServiceProviderConfig() {
         return scimServiceProviderConfig;
@@ -124,5 +157,52 @@ public class ComplianceTestMetaDataHolder {
     public void setScimSchema(SCIMSchema scimSchema) {
         this.scimSchema = scimSchema;
     }
-}
 
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+}
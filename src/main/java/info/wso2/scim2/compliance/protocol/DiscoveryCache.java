@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This keeps what the discovery endpoints, eg: /Schemas, of the service providers returned, for the later
+ * compliance runs against the same service provider with the same credentials. Only responses with an ETag
+ * are kept, and an entry is never used without asking the service provider: it is revalidated with
+ * If-None-Match, and dropped once it was not revalidated for scim2.compliance.discoveryCache.ttl seconds.
+ * Only the most recently used service providers are kept.
+ */
+public class DiscoveryCache {
+
+    private static final long TTL = TimeUnit.SECONDS.toMillis(Long.getLong(
+            ComplianceConstants.DiscoveryCacheConstants.TTL_PROPERTY,
+            ComplianceConstants.DiscoveryCacheConstants.DEFAULT_TTL));
+
+    // target -> endpoint -> entry, in least recently used order
+    private static final LinkedHashMap<String, Map<String, Entry<?>>> targets =
+            new LinkedHashMap<String, Map<String, Entry<?>>>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Entry<?>>> eldest) {
+                    return size() > ComplianceConstants.DiscoveryCacheConstants.MAX_TARGETS;
+                }
+            };
+
+    /**
+     * Get what the given endpoint of the service provider returned earlier.
+     * @param complianceTestMetaDataHolder
+     * @param endpoint eg: /Schemas
+     * @return the entry, or null if there is none, it expired or caching is disabled
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> Entry<T> get(ComplianceTestMetaDataHolder complianceTestMetaDataHolder,
+                                                String endpoint) {
+        if (TTL <= 0) {
+            return null;
+        }
+        Map<String, Entry<?>> entries = targets.get(getTargetKey(complianceTestMetaDataHolder));
+        Entry<T> entry = entries == null ? null : (Entry<T>) entries.get(endpoint);
+        if (entry != null && !entry.isFresh()) {
+            entries.remove(endpoint);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Keep what the given endpoint of the service provider returned, if it can be revalidated later.
+     * @param complianceTestMetaDataHolder
+     * @param endpoint eg: /Schemas
+     * @param value what was built from the response, which must not be modified afterwards
+     * @param eTag ETag of the response, or null, in which case nothing is kept
+     * @param wire
+     */
+    public static synchronized <T> void put(ComplianceTestMetaDataHolder complianceTestMetaDataHolder,
+                                            String endpoint, T value, String eTag, Wire wire) {
+        // an entry is only ever used on a 304 to If-None-Match
+        if (TTL <= 0 || eTag == null) {
+            return;
+        }
+        String key = getTargetKey(complianceTestMetaDataHolder);
+        Map<String, Entry<?>> entries = targets.get(key);
+        if (entries == null) {
+            entries = new HashMap<>();
+            targets.put(key, entries);
+        }
+        entries.put(endpoint, new Entry<>(value, eTag, wire));
+    }
+
+    /*
+     * The service provider, together with the credentials, since what it returns may depend on who asks.
+     * The credentials are only kept hashed.
+     */
+    private static String getTargetKey(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+        return complianceTestMetaDataHolder.getUrl() + "#" + DigestUtils.sha256Hex(
+                complianceTestMetaDataHolder.getUsername() + ":" + complianceTestMetaDataHolder.getPassword()
+                        + ":" + complianceTestMetaDataHolder.getAuthorization_header()
+                        + ":" + complianceTestMetaDataHolder.getClient_id()
+                        + ":" + complianceTestMetaDataHolder.getClient_secret());
+    }
+
+    /**
+     * What an endpoint returned.
+     * @param <T>
+     */
+    public static class Entry<T> {
+
+        private final T value;
+        private final String eTag;
+        private final Wire wire;
+        private volatile long validatedAt = System.currentTimeMillis();
+
+        private Entry(T value, String eTag, Wire wire) {
+            this.value = value;
+            this.eTag = eTag;
+            this.wire = wire;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Get the wire of the request the entry was built from.
+         * @return
+         */
+        public Wire getWire() {
+            return wire;
+        }
+
+        /**
+         * Check whether the entry was revalidated recently enough to be revalidated again.
+         * @return
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() - validatedAt < TTL;
+        }
+
+        /**
+         * Record that the service provider confirmed the entry is still current.
+         */
+        public void revalidated() {
+            validatedAt = System.currentTimeMillis();
+        }
+    }
+}
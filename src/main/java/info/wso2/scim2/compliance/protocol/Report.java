@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.ReportStatus;
+import info.wso2.scim2.compliance.pdf.ReportJobQueue;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+/**
+ * This serves the status of the report generation jobs and the finished reports.
+ */
+@Path("/report")
+public class Report {
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStatus(@PathParam("id") String id) {
+        ReportStatus reportStatus = ReportJobQueue.getStatus(id);
+        if (reportStatus == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(reportStatus).build();
+    }
+
+    @GET
+    @Path("/{id}/file")
+    @Produces("application/pdf")
+    public Response getReport(@PathParam("id") String id) {
+        File report = ReportJobQueue.getReport(id);
+        if (report == null || !report.isFile()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(report)
+                .header("Content-Disposition", "attachment; filename=\"" + report.getName() + "\"")
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import info.wso2.scim2.compliance.utils.ExecutorFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This schedules the test suites of a compliance run as a dependency graph. A suite starts as soon as
+ * all the suites it depends on are completed, so independent suites run concurrently on a bounded
+ * executor. Results are merged in the order the suites were added, regardless of completion order.
+ */
+public class TestSuiteScheduler {
+
+    private static final ExecutorService executorService = ExecutorFactory.newExecutor(
+            "compliance-suite-", ComplianceConstants.ExecutionConstants.SUITE_POOL_SIZE);
+
+    private LinkedHashMap<String, Suite> suites = new LinkedHashMap<>();
+    private LinkedHashMap<String, String[]> dependencies = new LinkedHashMap<>();
+    private ResultListener resultListener;
+
+    /**
+     * A test suite that can be scheduled.
+     */
+    public interface Suite {
+
+        ArrayList<TestResult> run() throws ComplianceException;
+    }
+
+    /**
+     * Notified of the results of each suite as soon as it completes, in completion order.
+     */
+    public interface ResultListener {
+
+        void suiteCompleted(String name, List<TestResult> results);
+    }
+
+    /**
+     * Set the listener notified of the results of the suites, called on the threads running the suites.
+     * @param resultListener the listener, or null for none
+     */
+    public void setResultListener(ResultListener resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    /**
+     * Add a suite to the graph. Dependencies must have been added before the suite depending on them,
+     * which keeps the graph free of cycles and makes the insertion order a valid topological order.
+     * @param name
+     * @param suite
+     * @param dependsOn
+     * @throws ComplianceException
+     */
+    public void addSuite(String name, Suite suite, String... dependsOn) throws ComplianceException {
+        if (suites.containsKey(name)) {
+            throw new ComplianceException("Test suite " + name + " is already scheduled.");
+        }
+        for (String dependency : dependsOn) {
+            if (!suites.containsKey(dependency)) {
+                throw new ComplianceException("Test suite " + name + " depends on unknown test suite "
+                        + dependency + ".");
+            }
+        }
+        suites.put(name, suite);
+        dependencies.put(name, dependsOn);
+    }
+
+    /**
+     * Run all the scheduled suites and merge their results in insertion order.
+     * @return
+     * @throws ComplianceException the first failure in insertion order, once all suites have settled
+     */
+    public ArrayList<TestResult> run() throws ComplianceException {
+        LinkedHashMap<String, CompletableFuture<ArrayList<TestResult>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Suite> entry : suites.entrySet()) {
+            String[] dependsOn = dependencies.get(entry.getKey());
+            CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependsOn.length];
+            for (int i = 0; i < dependsOn.length; i++) {
+                dependencyFutures[i] = futures.get(dependsOn[i]);
+            }
+            final String name = entry.getKey();
+            final Suite suite = entry.getValue();
+            futures.put(name, CompletableFuture.allOf(dependencyFutures)
+                    .thenApplyAsync(ignored -> runSuite(name, suite), executorService));
+        }
+
+        // wait for every suite to settle so that no suite keeps running against the server after we return
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()])).join();
+        } catch (CompletionException e) {
+            // reported below in insertion order
+        }
+
+        ArrayList<TestResult> results = new ArrayList<>();
+        for (CompletableFuture<ArrayList<TestResult>> future : futures.values()) {
+            try {
+                results.addAll(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ComplianceException) {
+                    throw (ComplianceException) e.getCause();
+                }
+                throw new ComplianceException("Error occurred while running the test suites.", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private ArrayList<TestResult> runSuite(String name, Suite suite) {
+        try {
+            ArrayList<TestResult> results = suite.run();
+            if (resultListener != null) {
+                resultListener.suiteCompleted(name, Collections.unmodifiableList(results));
+            }
+            return results;
+        } catch (ComplianceException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
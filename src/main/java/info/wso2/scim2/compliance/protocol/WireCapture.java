@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.protocol;
+
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * This records the request and the response of a test case into a Wire. Everything is appended once to a
+ * per thread buffer which is reused across test cases, and the request payload is decoded straight into
+ * it, so a large message is copied only into the final strings of the Wire.
+ */
+public class WireCapture {
+
+    // buffers growing beyond this are dropped after use instead of being kept for the next capture
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<StringBuilder> buffer = new ThreadLocal<StringBuilder>() {
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1024);
+        }
+    };
+
+    /**
+     * Render the response headers, one per line.
+     * @param response
+     * @return
+     */
+    public static String getHeaderString(HttpResponse response) {
+        StringBuilder headerString = acquire();
+        for (Header header : response.getAllHeaders()) {
+            headerString.append(header.getName()).append(" : ").append(header.getValue()).append('\n');
+        }
+        return release(headerString);
+    }
+
+    /**
+     * Record the request and the response.
+     * @param method
+     * @param responseBody
+     * @param headerString
+     * @param responseStatus
+     * @param subTests
+     * @return
+     * @throws ComplianceException
+     */
+    public static Wire capture(HttpRequestBase method, String responseBody, String headerString,
+                               String responseStatus, List<String> subTests) throws ComplianceException {
+
+        StringBuilder wire = acquire();
+        wire.append(method.getRequestLine().getMethod()).append(' ');
+        wire.append(method.getRequestLine().getUri()).append('\n');
+        wire.append(method.getRequestLine().getProtocolVersion().getProtocol());
+        for (Header header : method.getAllHeaders()) {
+            wire.append(header.getName()).append(": ").append(header.getValue()).append('\n');
+        }
+        if (!"GET".equals(method.getMethod()) && !"DELETE".equals(method.getMethod())) {
+            try {
+                appendEntity(wire, ((HttpEntityEnclosingRequest) method).getEntity());
+            } catch (Exception e) {
+                release(wire);
+                throw new ComplianceException(500, "Error in getting the request payload");
+            }
+        }
+        String toServer = wire.toString();
+
+        wire.setLength(0);
+        wire.append("\nHeaders : ").append(headerString).append('\n');
+        wire.append("\nStatus : ").append(responseStatus).append('\n');
+        wire.append('\n').append(responseBody);
+        String fromServer = wire.toString();
+
+        wire.setLength(0);
+        for (String subTest : subTests) {
+            wire.append(subTest).append('\n');
+        }
+        return new Wire(toServer, fromServer, release(wire));
+    }
+
+    private static void appendEntity(StringBuilder wire, HttpEntity entity) throws IOException {
+        if (entity == null) {
+            throw new IOException("The request has no payload.");
+        }
+        Charset charset = ContentType.getOrDefault(entity).getCharset();
+        if (charset == null) {
+            charset = StandardCharsets.ISO_8859_1;
+        }
+        InputStream content = entity.getContent();
+        if (content == null) {
+            return;
+        }
+        try (Reader reader = new InputStreamReader(content, charset)) {
+            char[] chars = new char[4096];
+            int read;
+            while ((read = reader.read(chars)) != -1) {
+                wire.append(chars, 0, read);
+            }
+        }
+    }
+
+    private static StringBuilder acquire() {
+        StringBuilder builder = buffer.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static String release(StringBuilder builder) {
+        String value = builder.toString();
+        builder.setLength(0);
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer.remove();
+        }
+        return value;
+    }
+}
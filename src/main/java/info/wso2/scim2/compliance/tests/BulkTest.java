@@ -24,8 +24,10 @@ import info.wso2.scim2.compliance.exception.GeneralComplianceException;
 import info.wso2.scim2.compliance.httpclient.HTTPClient;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.WireCapture;
+import info.wso2.scim2.compliance.tests.common.BulkProvisioner;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
-import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -33,12 +35,8 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.BasicResponseHandler;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 /**
@@ -68,30 +66,7 @@ public class BulkTest {
      * @throws ComplianceException
      */
     public ArrayList<TestResult> performTest() throws ComplianceException {
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    testResults.add((TestResult) method.invoke(this));
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (GeneralComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in Bulk Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new ComplianceException("Error occurred in Bulk Test.");
-                }
-
-            }
-        }
-        return testResults;
+        return new TestCaseRunner(this, "Bulk Test").runTestCases();
     }
 
     /**
@@ -100,8 +75,8 @@ public class BulkTest {
      * @throws GeneralComplianceException
      */
     public void RunCleanUpTask() throws ComplianceException, GeneralComplianceException {
-        for(String location : createdUserLocations) {
-            DeleteUser(location);
+        for (String location : createdUserLocations) {
+            complianceTestMetaDataHolder.getCleanupQueue().delete(location);
         }
     }
 
@@ -118,7 +93,7 @@ public class BulkTest {
 
         HttpPost method = new HttpPost(url);
         //create group test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -136,23 +111,20 @@ public class BulkTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
             //get the created user locations
             createdUserLocations = getLocations(responseString);
+            for (String location : createdUserLocations) {
+                complianceTestMetaDataHolder.getCleanupQueue().register(location);
+            }
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Bulk Test",
@@ -188,7 +160,7 @@ public class BulkTest {
 
         HttpDelete method = new HttpDelete(deleteUserURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -204,20 +176,14 @@ public class BulkTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Bulk Test",
@@ -245,17 +211,6 @@ public class BulkTest {
      * @throws JSONException
      */
     public ArrayList<String> getLocations (String response) throws JSONException {
-
-        ArrayList<String> UserLocations = new ArrayList<>();
-
-        JSONObject jsonObject = new JSONObject(response);
-        JSONArray jsonarray = jsonObject.optJSONArray("Operations");
-        for (int i = 0; i < jsonarray.length(); i++) {
-            JSONObject innerJsonobject = jsonarray.getJSONObject(i);
-            String location = innerJsonobject.getString("location");
-            UserLocations.add(location);
-        }
-
-        return UserLocations;
+        return BulkProvisioner.getLocations(response);
     }
 }
@@ -18,26 +18,30 @@ package info.wso2.scim2.compliance.tests;
 import info.wso2.scim2.compliance.exception.ComplianceException;
 import info.wso2.scim2.compliance.exception.GeneralComplianceException;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.DiscoveryCache;
+import info.wso2.scim2.compliance.protocol.WireCapture;
 import info.wso2.scim2.compliance.entities.TestResult;
 import info.wso2.scim2.compliance.exception.CriticalComplianceException;
 import info.wso2.scim2.compliance.httpclient.HTTPClient;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
 import info.wso2.scim2.compliance.tests.common.ResponseValidateTests;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
 import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.util.EntityUtils;
 import org.wso2.charon3.core.encoder.JSONDecoder;
 import org.wso2.charon3.core.exceptions.BadRequestException;
 import org.wso2.charon3.core.exceptions.CharonException;
 import org.wso2.charon3.core.exceptions.InternalErrorException;
 import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 /**
@@ -60,30 +64,7 @@ public class ConfigTest {
      * Test is to get the service provider configurations from service provider.
      **/
     public ArrayList<TestResult> performTest() throws CriticalComplianceException, ComplianceException{
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    testResults.add((TestResult) method.invoke(this));
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (CriticalComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in Config Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new ComplianceException("Error occurred in Config Test.");
-                }
-
-            }
-        }
-        return testResults;
+        return new TestCaseRunner(this, "Config Test").runTestCases();
     }
 
     /**
@@ -94,6 +75,11 @@ public class ConfigTest {
      */
     @TestCase
     public TestResult getServiceProviderConfigTest () throws CriticalComplianceException, ComplianceException {
+        // the service provider configs of an earlier run against the same service provider are reused when
+        // not modified
+        DiscoveryCache.Entry<SCIMServiceProviderConfig> cached = DiscoveryCache.get(complianceTestMetaDataHolder,
+                ComplianceConstants.TestConstants.SERVICE_PROVIDER_ENDPOINT);
+
         // Construct the endpoint url
         String url = complianceTestMetaDataHolder.getUrl() +
                 ComplianceConstants.TestConstants.SERVICE_PROVIDER_ENDPOINT;
@@ -101,11 +87,14 @@ public class ConfigTest {
         // specify the get request
         HttpGet method = new HttpGet(url);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
         method.setHeader("Content-Type", "application/json");
+        if (cached != null && cached.getETag() != null) {
+            method.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+        }
 
         HttpResponse response = null;
         String responseString = "";
@@ -116,21 +105,19 @@ public class ConfigTest {
         try {
             //get the service provider configs
             response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
+            if (cached != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                EntityUtils.consume(response.getEntity());
+            } else {
+                // Read the response body.
+                responseString = new BasicResponseHandler().handleResponse(response);
             }
+            //get all headers
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
@@ -140,6 +127,14 @@ public class ConfigTest {
                             ComplianceUtils.getWire(method, responseString,
                                     headerString, responseStatus, subTests)));
         }
+        if (cached != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            cached.revalidated();
+            complianceTestMetaDataHolder.setScimServiceProviderConfig(cached.getValue());
+            return new TestResult
+                    (TestResult.SUCCESS, "Get ServiceProviderConfig",
+                            "ServiceProviderConfig of an earlier run is not modified", ComplianceUtils.getWire(method,
+                            responseString, headerString, responseStatus, subTests));
+        }
         if (response.getStatusLine().getStatusCode() == 200) {
             //obtain the schema corresponding to serviceProviderConfig
             SCIMResourceTypeSchema schema = complianceTestMetaDataHolder.getScimSchema().
@@ -171,10 +166,15 @@ public class ConfigTest {
                         e.getResult().getMessage(), ComplianceUtils.getWire(method,
                         responseString, headerString, responseStatus, subTests)));
             }
-            return new TestResult
+            TestResult testResult = new TestResult
                     (TestResult.SUCCESS, "Get ServiceProviderConfig",
                             "", ComplianceUtils.getWire(method, responseString, headerString,
                             responseStatus, subTests));
+            Header eTag = response.getFirstHeader(HttpHeaders.ETAG);
+            DiscoveryCache.put(complianceTestMetaDataHolder,
+                    ComplianceConstants.TestConstants.SERVICE_PROVIDER_ENDPOINT, scimServiceProviderConfig,
+                    eTag == null ? null : eTag.getValue(), testResult.getWire());
+            return testResult;
         } else {
             return new TestResult
                     (TestResult.ERROR, "Get ServiceProviderConfig",
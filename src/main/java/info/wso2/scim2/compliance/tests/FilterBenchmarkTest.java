@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.tests.common.FilterExpressionGenerator;
+import info.wso2.scim2.compliance.tests.common.LatencyHistogram;
+import info.wso2.scim2.compliance.tests.common.LoadRunner;
+import info.wso2.scim2.compliance.tests.common.SeededDataset;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * This class measures the latency of filtering /Users against data sets of increasing size. At each of the
+ * scim2.compliance.filterBenchmark.sizes the data set is grown, and a mix of expressions generated by the
+ * FilterExpressionGenerator is sent for each operator, one request at a time. The result of each operator
+ * is its latency curve over the sizes: an attribute the service provider does not index shows up as a
+ * latency growing with the size. The number of users each filter selects is checked as well. It is run only
+ * when scim2.compliance.filterBenchmark.enabled is set.
+ */
+public class FilterBenchmarkTest {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private String usersURL;
+    // filters are sent one at a time, so that their latencies do not include waiting for each other
+    private LoadRunner queryRunner;
+    private SeededDataset seededDataset;
+    private FilterExpressionGenerator filterExpressionGenerator;
+    private int requests;
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     */
+    public FilterBenchmarkTest(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+
+        usersURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.USERS_ENDPOINT;
+
+        queryRunner = new LoadRunner(complianceTestMetaDataHolder, 1);
+        seededDataset = new SeededDataset(complianceTestMetaDataHolder, new LoadRunner(complianceTestMetaDataHolder,
+                Integer.getInteger(ComplianceConstants.PerformanceConstants.CONCURRENCY_PROPERTY,
+                        ComplianceConstants.PerformanceConstants.DEFAULT_CONCURRENCY)), "filter");
+        filterExpressionGenerator = new FilterExpressionGenerator(seededDataset,
+                ComplianceConstants.FilterBenchmarkConstants.SEED);
+        requests = Math.max(1, Integer.getInteger(ComplianceConstants.FilterBenchmarkConstants.REQUESTS_PROPERTY,
+                ComplianceConstants.FilterBenchmarkConstants.DEFAULT_REQUESTS));
+    }
+
+    /**
+     * Check whether the filter benchmark is enabled.
+     * @return
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ComplianceConstants.FilterBenchmarkConstants.ENABLED_PROPERTY);
+    }
+
+    /**
+     * Method to handle test cases.
+     * @return
+     * @throws ComplianceException
+     */
+    public ArrayList<TestResult> performTest() throws ComplianceException {
+        try {
+            return new TestCaseRunner(this, "Filter Benchmark Test").runTestCases();
+        } finally {
+            seededDataset.delete();
+        }
+    }
+
+    /**
+     * Measure the filter latency of each operator at each data set size.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase
+    public ArrayList<TestResult> FilterLatency() throws ComplianceException {
+        ArrayList<TestResult> testResults = new ArrayList<>();
+        LinkedHashMap<String, Curve> curves = new LinkedHashMap<>();
+        for (String operator : FilterExpressionGenerator.OPERATORS) {
+            curves.put(operator, new Curve());
+        }
+
+        for (int size : getSizes()) {
+            try {
+                testResults.add(seededDataset.grow(size, "Seed Filter Users " + size));
+            } catch (GeneralComplianceException e) {
+                // the expected result counts would be off from here on
+                testResults.add(e.getResult());
+                break;
+            }
+            for (String operator : FilterExpressionGenerator.OPERATORS) {
+                curves.get(operator).add(measure(operator, size));
+            }
+        }
+
+        for (String operator : FilterExpressionGenerator.OPERATORS) {
+            testResults.add(curves.get(operator).toTestResult("Filter Latency " + operator));
+        }
+        return testResults;
+    }
+
+    /*
+     * Send the expressions of an operator, checking the number of users each selects.
+     */
+    private Point measure(String operator, int size) throws ComplianceException {
+        final ArrayList<FilterExpressionGenerator.Expression> expressions = new ArrayList<>();
+        final ArrayList<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < ComplianceConstants.FilterBenchmarkConstants.EXPRESSIONS_PER_OPERATOR; i++) {
+            FilterExpressionGenerator.Expression expression = filterExpressionGenerator.generate(operator, size);
+            expressions.add(expression);
+            expected.add(expression.count(size));
+        }
+        final Point point = new Point(size, expressions);
+        point.measurement = queryRunner.run("Filter Latency " + operator, requests, new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) throws ComplianceException {
+                String filter = expressions.get(index % expressions.size()).getFilter();
+                try {
+                    HttpGet method = new HttpGet(usersURL + "?filter=" + URLEncoder.encode(filter, "UTF-8")
+                            + "&count=" + ComplianceConstants.FilterBenchmarkConstants.PAGE_SIZE);
+                    method.setHeader("Accept", "application/json");
+                    return method;
+                } catch (UnsupportedEncodingException e) {
+                    throw new ComplianceException("Could not encode the filter " + filter);
+                }
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                int expressionIndex = index % expressions.size();
+                String totalResults = String.valueOf(statusCode);
+                if (statusCode == 200) {
+                    try {
+                        totalResults = String.valueOf(new JSONObject(responseString).getInt("totalResults"));
+                    } catch (JSONException e) {
+                        totalResults = "an invalid list response";
+                    }
+                }
+                if (String.valueOf(expected.get(expressionIndex)).equals(totalResults)) {
+                    return true;
+                }
+                point.mismatch(expressions.get(expressionIndex).getFilter() + " : expected "
+                        + expected.get(expressionIndex) + " users, got "
+                        + (statusCode == 200 ? totalResults : "status " + totalResults));
+                return false;
+            }
+        });
+        return point;
+    }
+
+    private List<Integer> getSizes() {
+        TreeSet<Integer> sizes = new TreeSet<>();
+        for (String size : System.getProperty(ComplianceConstants.FilterBenchmarkConstants.SIZES_PROPERTY,
+                ComplianceConstants.FilterBenchmarkConstants.DEFAULT_SIZES).split(",")) {
+            try {
+                if (Integer.parseInt(size.trim()) > 0) {
+                    sizes.add(Integer.parseInt(size.trim()));
+                }
+            } catch (NumberFormatException e) {
+                // not a size, ignored
+            }
+        }
+        return new ArrayList<>(sizes);
+    }
+
+    /**
+     * The latencies of an operator at a data set size.
+     */
+    private static class Point {
+
+        private final int size;
+        private final List<FilterExpressionGenerator.Expression> expressions;
+        private final List<String> mismatches = Collections.synchronizedList(new ArrayList<String>());
+        private LoadRunner.Measurement measurement;
+
+        private Point(int size, List<FilterExpressionGenerator.Expression> expressions) {
+            this.size = size;
+            this.expressions = expressions;
+        }
+
+        private void mismatch(String mismatch) {
+            synchronized (mismatches) {
+                if (mismatches.size() < ComplianceConstants.FilterBenchmarkConstants.MAX_REPORTED_MISMATCHES
+                        && !mismatches.contains(mismatch)) {
+                    mismatches.add(mismatch);
+                }
+            }
+        }
+    }
+
+    /**
+     * The latencies of an operator over the data set sizes.
+     */
+    private static class Curve {
+
+        private final List<Point> points = new ArrayList<>();
+
+        private void add(Point point) {
+            points.add(point);
+        }
+
+        private TestResult toTestResult(String name) {
+            if (points.isEmpty()) {
+                return new TestResult(TestResult.SKIPPED, name, "Skipped", null);
+            }
+            StringBuilder message = new StringBuilder();
+            StringBuilder filters = new StringBuilder();
+            StringBuilder mismatches = new StringBuilder();
+            StringBuilder latencies = new StringBuilder();
+            int errors = 0;
+            for (Point point : points) {
+                LatencyHistogram histogram = point.measurement.getHistogram();
+                errors += point.measurement.getErrors();
+                message.append(String.format("%d users p50 %.1f ms, ", point.size,
+                        histogram.getValueAtPercentile(50) / 1000.0));
+                latencies.append(String.format(
+                        "%d users : %d errors, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                        point.size, point.measurement.getErrors(), histogram.getValueAtPercentile(50) / 1000.0,
+                        histogram.getValueAtPercentile(95) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                        histogram.getMaxValue() / 1000.0));
+                filters.append(point.size).append(" users :\n");
+                for (FilterExpressionGenerator.Expression expression : point.expressions) {
+                    filters.append("  ").append(expression.getFilter()).append("\n");
+                }
+                synchronized (point.mismatches) {
+                    for (String mismatch : point.mismatches) {
+                        mismatches.append(point.size).append(" users : ").append(mismatch).append("\n");
+                    }
+                }
+            }
+            Point first = points.get(0);
+            Point last = points.get(points.size() - 1);
+            long firstMedian = Math.max(1, first.measurement.getHistogram().getValueAtPercentile(50));
+            message.append(String.format("p50 grew %.1f times for %.1f times the users.",
+                    (double) last.measurement.getHistogram().getValueAtPercentile(50) / firstMedian,
+                    (double) last.size / first.size));
+            if (errors > 0) {
+                message.append(" ").append(errors).append(" requests failed or selected the wrong users.");
+            }
+            return new TestResult(errors == 0 ? TestResult.SUCCESS : TestResult.ERROR, name, message.toString(),
+                    new Wire(filters.toString(), mismatches.toString(), latencies.toString()));
+        }
+    }
+}
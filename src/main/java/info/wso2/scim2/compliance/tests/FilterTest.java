@@ -23,31 +23,22 @@ import info.wso2.scim2.compliance.exception.GeneralComplianceException;
 import info.wso2.scim2.compliance.httpclient.HTTPClient;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
-import info.wso2.scim2.compliance.tests.common.ResponseValidateTests;
+import info.wso2.scim2.compliance.protocol.WireCapture;
+import info.wso2.scim2.compliance.tests.common.ListResourceValidator;
+import info.wso2.scim2.compliance.tests.common.SharedTestFixture;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
-import org.apache.http.Header;
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.BasicResponseHandler;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
-import org.wso2.charon3.core.encoder.JSONDecoder;
-import org.wso2.charon3.core.exceptions.BadRequestException;
 import org.wso2.charon3.core.exceptions.CharonException;
-import org.wso2.charon3.core.exceptions.InternalErrorException;
 import org.wso2.charon3.core.objects.Group;
 import org.wso2.charon3.core.objects.User;
 import org.wso2.charon3.core.schema.SCIMResourceSchemaManager;
 import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -83,31 +74,7 @@ public class FilterTest {
      * @throws ComplianceException
      */
     public ArrayList<TestResult> performTest() throws ComplianceException {
-        //perform filter tests
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    testResults = (ArrayList<TestResult>) method.invoke(this);
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (GeneralComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in Bulk Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-
-            }
-        }
-        return testResults;
+        return new TestCaseRunner(this, "Filter Test").runTestCases();
     }
 
     /**
@@ -118,17 +85,24 @@ public class FilterTest {
     @TestCase
     public ArrayList<TestResult> GetFilterTest() throws ComplianceException {
         ArrayList<TestResult> testResults = new ArrayList<>();
+        // the users and groups are shared with the other query test classes, see SharedTestFixture
+        SharedTestFixture sharedTestFixture = complianceTestMetaDataHolder.getSharedTestFixture();
+        sharedTestFixture.acquire();
         try {
-            CreateTestsUsers();
-            testResults.add(FilterUsers());
-        } catch (GeneralComplianceException e){
-            testResults.add(e.getResult());
-        }
-        try {
-            CreateTestsGroups();
-            testResults.add(FilterGroups());
-        } catch (GeneralComplianceException e){
-            testResults.add(e.getResult());
+            try {
+                userIDs = new HashMap<>(sharedTestFixture.getUsers("Filter Users"));
+                testResults.add(FilterUsers());
+            } catch (GeneralComplianceException e){
+                testResults.add(e.getResult());
+            }
+            try {
+                groupIDs = new HashMap<>(sharedTestFixture.getGroups("Filter Groups"));
+                testResults.add(FilterGroups());
+            } catch (GeneralComplianceException e){
+                testResults.add(e.getResult());
+            }
+        } finally {
+            sharedTestFixture.release();
         }
         return testResults;
     }
@@ -144,7 +118,7 @@ public class FilterTest {
         String value = (new ArrayList<>(userIDs.values())).get(0);
         HttpGet method = new HttpGet(usersURL +"?filter=userName+eq+" + value);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -159,26 +133,16 @@ public class FilterTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
-            //clean up task
-            for (String id : userIDs.keySet()) {
-                CleanUpUser(id);
-            }
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
                     "Could not filter the users at url " + usersURL,
                     ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
@@ -188,46 +152,12 @@ public class FilterTest {
 
             //obtain the schema corresponding to user
             SCIMResourceTypeSchema schema = SCIMResourceSchemaManager.getInstance().getUserResourceSchema();
-            JSONDecoder jsonDecoder = new JSONDecoder();
             ArrayList<User> userList = new ArrayList<>();
             try {
-                JSONObject jsonObj = new JSONObject(responseString);
-                JSONArray usersArray = jsonObj.getJSONArray("Resources");
-                JSONObject tmp;
-                for (int i = 0; i < usersArray.length(); i++) {
-                    tmp = usersArray.getJSONObject(i);
-                    userList.add((User) jsonDecoder.decodeResource(tmp.toString(), schema, new User()));
-                    try {
-                        ResponseValidateTests.runValidateTests(userList.get(i), schema,
-                                null, null, method,
-                                responseString, headerString, responseStatus, subTests);
-
-                    } catch (BadRequestException | CharonException e) {
-                        //clean up task
-                        for (String id : userIDs.keySet()) {
-                            CleanUpUser(id);
-                        }
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
-                                "Response Validation Error",
-                                ComplianceUtils.getWire(method, responseString, headerString,
-                                        responseStatus, subTests)));
-                    }
-                }
+                userList.addAll(ListResourceValidator.decodeAndValidate(responseString, schema, User::new,
+                        "Filter Users", method, headerString, responseStatus, subTests));
             } catch (JSONException e) {
-                //clean up task
-                for (String id : userIDs.keySet()) {
-                    CleanUpUser(id);
-                }
                 throw new ComplianceException(500, "Error in decoding the returned filter resource.");
-
-            } catch (BadRequestException | CharonException | InternalErrorException e) {
-                //clean up task
-                for (String id : userIDs.keySet()) {
-                    CleanUpUser(id);
-                }
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
-                        "Could not decode the server response",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
             }
             // check for all created groups
             try {
@@ -236,10 +166,6 @@ public class FilterTest {
             } catch (CharonException e) {
                 throw new ComplianceException(500, "Could not get the created user id");
             }
-            //clean up task
-            for (String id : userIDs.keySet()) {
-                CleanUpUser(id);
-            }
             return new TestResult
                     (TestResult.SUCCESS, "Filter Users",
                             "", ComplianceUtils.getWire(method, responseString,
@@ -252,63 +178,6 @@ public class FilterTest {
         }
     }
 
-    /**
-     * Clean up task to delete the created users.
-     * @param id
-     * @throws ComplianceException
-     * @throws GeneralComplianceException
-     */
-    private void CleanUpUser(String id) throws ComplianceException, GeneralComplianceException {
-
-        String deleteUserURL = usersURL + "/" + id;
-
-        HttpDelete method = new HttpDelete(deleteUserURL);
-
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        try {
-
-            response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-        } catch (Exception e) {
-            // Read the response body.
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
-                    "Could not delete the default user at url " + deleteUserURL,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-
-        if (response.getStatusLine().getStatusCode() != 204) {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
-                    "Could not delete the default user at url " + deleteUserURL,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-    }
-
     /**
      * Validation test to check whether the response contains all the expected users.
      * @param userList
@@ -331,10 +200,6 @@ public class FilterTest {
         String value = (new ArrayList<>(userIDs.values())).get(0);
         for (User user : userList) {
             if (!value.equals(user.getUserName())){
-                //clean up task
-                for (String id : userIDs.keySet()) {
-                    CleanUpUser(id);
-                }
                 throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
                         "Response does not contain the expected users",
                         ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
@@ -342,140 +207,6 @@ public class FilterTest {
         }
     }
 
-    /**
-     * Create test users.
-     * @return
-     * @throws ComplianceException
-     * @throws GeneralComplianceException
-     */
-    private HashMap<String, String> CreateTestsUsers() throws ComplianceException, GeneralComplianceException {
-
-        ArrayList<String> definedUsers = new ArrayList<>();
-        definedUsers.add("{\"password\": \"7019asd81\",\"userName\": \"AbrTkAA31\"}");
-        definedUsers.add("{\"password\": \"7019asd82\",\"userName\": \"UttEdHt32\"}");
-        definedUsers.add("{\"password\": \"7019asd83\",\"userName\": \"KKTQwhr33\"}");
-
-        HttpPost method = new HttpPost(usersURL);
-        //create users
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-        method.setHeader("Content-Type", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        for (int i = 0 ; i < 3 ; i++) {
-            try {
-                //create the group
-                HttpEntity entity = new ByteArrayEntity(definedUsers.get(i).getBytes("UTF-8"));
-                method.setEntity(entity);
-                response = client.execute(method);
-                // Read the response body.
-                responseString = new BasicResponseHandler().handleResponse(response);
-                responseStatus = String.valueOf(response.getStatusLine().getStatusCode());
-                if (responseStatus.equals("201")) {
-                    //obtain the schema corresponding to group
-                    SCIMResourceTypeSchema schema = SCIMResourceSchemaManager.getInstance().getUserResourceSchema();
-
-                    JSONDecoder jsonDecoder = new JSONDecoder();
-                    User user = null;
-                    try {
-                        user = (User) jsonDecoder.decodeResource(responseString, schema, new User());
-                    } catch (BadRequestException | CharonException | InternalErrorException e) {
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
-                                "Could not decode the server response of users create.",
-                                ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-                    }
-                    userIDs.put(user.getId(), user.getUserName());
-                }
-
-            } catch (Exception e) {
-                // Read the response body.
-                Header[] headers = response.getAllHeaders();
-                for (Header header : headers) {
-                    headerString += header.getName() + " : " + header.getValue() + "\n";
-                }
-                responseStatus = response.getStatusLine().getStatusCode() + " "
-                        + response.getStatusLine().getReasonPhrase();
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Users",
-                        "Could not create default users at url " + usersURL,
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-            }
-        }
-        return userIDs;
-    }
-
-    /**
-     * Create test groups.
-     * @return
-     * @throws ComplianceException
-     * @throws GeneralComplianceException
-     */
-    private HashMap<String, String> CreateTestsGroups () throws ComplianceException, GeneralComplianceException {
-
-        ArrayList<String> definedGroups = new ArrayList<>();
-        definedGroups.add("{\"displayName\": \"EYtXcD31\"}");
-        definedGroups.add("{\"displayName\": \"BktqER32\"}");
-        definedGroups.add("{\"displayName\": \"ZwLtOP33\"}");
-
-        HttpPost method = new HttpPost(groupURL);
-        //create groups
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-        method.setHeader("Content-Type", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        for (int i = 0 ; i < 3 ; i++) {
-            try {
-                //create the group
-                HttpEntity entity = new ByteArrayEntity(definedGroups.get(i).getBytes("UTF-8"));
-                method.setEntity(entity);
-                response = client.execute(method);
-                // Read the response body.
-                responseString = new BasicResponseHandler().handleResponse(response);
-                responseStatus = String.valueOf(response.getStatusLine().getStatusCode());
-                if (responseStatus.equals("201")) {
-                    //obtain the schema corresponding to group
-                    SCIMResourceTypeSchema schema = SCIMResourceSchemaManager.getInstance().getGroupResourceSchema();
-
-                    JSONDecoder jsonDecoder = new JSONDecoder();
-                    Group group = null;
-                    try {
-                        group = (Group) jsonDecoder.decodeResource(responseString, schema, new Group());
-                    } catch (BadRequestException | CharonException | InternalErrorException e) {
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
-                                "Could not decode the server response of groups create.",
-                                ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-                    }
-                    groupIDs.put(group.getId(), group.getDisplayName());
-                }
-
-            } catch (Exception e) {
-                // Read the response body.
-                Header[] headers = response.getAllHeaders();
-                for (Header header : headers) {
-                    headerString += header.getName() + " : " + header.getValue() + "\n";
-                }
-                responseStatus = response.getStatusLine().getStatusCode() + " "
-                        + response.getStatusLine().getReasonPhrase();
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
-                        "Could not create default groups at url " + groupURL,
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-            }
-        }
-        return groupIDs;
-    }
-
     /**
      * Method to filter groups.
      * @return
@@ -487,7 +218,7 @@ public class FilterTest {
         String value = (new ArrayList<>(groupIDs.values())).get(0);
         HttpGet method = new HttpGet(groupURL +"?filter=displayName+eq+" + value);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -502,26 +233,16 @@ public class FilterTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
-            //clean up task
-            for (String id : groupIDs.keySet()) {
-                CleanUpGroup(id);
-            }
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
                     "Could not filter the groups at url " + groupURL,
                     ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
@@ -531,70 +252,24 @@ public class FilterTest {
 
             //obtain the schema corresponding to group
             SCIMResourceTypeSchema schema = SCIMResourceSchemaManager.getInstance().getGroupResourceSchema();
-            JSONDecoder jsonDecoder = new JSONDecoder();
             ArrayList<Group> groupList = new ArrayList<>();
             try {
-                JSONObject jsonObj = new JSONObject(responseString);
-                JSONArray groupsArray = jsonObj.getJSONArray("Resources");
-                JSONObject tmp;
-                for (int i = 0; i < groupsArray.length(); i++) {
-                    tmp = groupsArray.getJSONObject(i);
-                    groupList.add((Group) jsonDecoder.decodeResource(tmp.toString(), schema, new Group()));
-                    try {
-                        ResponseValidateTests.runValidateTests(groupList.get(i), schema,
-                                null, null, method,
-                                responseString, headerString, responseStatus, subTests);
-
-                    } catch (BadRequestException | CharonException e) {
-                        //clean up task
-                        for (String id : groupIDs.keySet()) {
-                            CleanUpGroup(id);
-                        }
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
-                                "Response Validation Error",
-                                ComplianceUtils.getWire(method, responseString, headerString,
-                                        responseStatus, subTests)));
-                    }
-                }
+                groupList.addAll(ListResourceValidator.decodeAndValidate(responseString, schema, Group::new,
+                        "Filter Groups", method, headerString, responseStatus, subTests));
             } catch (JSONException e) {
-                //clean up task
-                for (String id : groupIDs.keySet()) {
-                    CleanUpGroup(id);
-                }
                 throw new ComplianceException(500, "Error in decoding the returned filter resource.");
-
-            } catch (BadRequestException | CharonException | InternalErrorException e) {
-                //clean up task
-                for (String id : groupIDs.keySet()) {
-                    CleanUpGroup(id);
-                }
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
-                        "Could not decode the server response",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
             }
             // check for all created groups
             try {
                 CheckForListOfGroupsReturned(groupList, method, responseString, headerString, responseStatus, subTests);
             } catch (CharonException e) {
-                //clean up task
-                for (String id : groupIDs.keySet()) {
-                    CleanUpGroup(id);
-                }
                 throw new ComplianceException(500, "Could not get the created group id");
             }
-            //clean up task
-            for (String id : groupIDs.keySet()) {
-                CleanUpGroup(id);
-            }
             return new TestResult
                     (TestResult.SUCCESS, "Filter Groups",
                             "", ComplianceUtils.getWire(method, responseString,
                             headerString, responseStatus, subTests));
         } else {
-            //clean up task
-            for (String id : groupIDs.keySet()) {
-                CleanUpGroup(id);
-            }
             return new TestResult
                     (TestResult.ERROR, "Filter Groups",
                             "", ComplianceUtils.getWire(method, responseString,
@@ -625,10 +300,6 @@ public class FilterTest {
         String value = (new ArrayList<>(groupIDs.values())).get(0);
         for (Group group : returnedGroups) {
             if (!value.equals(group.getDisplayName())){
-                //clean up task
-                for (String id : groupIDs.keySet()) {
-                    CleanUpGroup(id);
-                }
                 throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
                         "Response does not contain the expected groups",
                         ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
@@ -636,60 +307,4 @@ public class FilterTest {
         }
     }
 
-    /**
-     * Clean up the created groups after the test.
-     * @param id
-     * @throws GeneralComplianceException
-     * @throws ComplianceException
-     */
-    private void CleanUpGroup (String id) throws GeneralComplianceException, ComplianceException {
-
-        String deleteGroupURL = groupURL + "/" + id;
-
-        HttpDelete method = new HttpDelete(deleteGroupURL);
-
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        try {
-
-            response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-        } catch (Exception e) {
-            // Read the response body.
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
-                    "Could not delete the default group at url " + deleteGroupURL,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-
-        if (response.getStatusLine().getStatusCode() != 204) {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Filter Groups",
-                    "Could not delete the default group at url " + deleteGroupURL,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-    }
 }
@@ -23,9 +23,10 @@ import info.wso2.scim2.compliance.httpclient.HTTPClient;
 import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.WireCapture;
 import info.wso2.scim2.compliance.tests.common.ResponseValidateTests;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
-import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -41,8 +42,6 @@ import org.wso2.charon3.core.objects.User;
 import org.wso2.charon3.core.schema.SCIMResourceSchemaManager;
 import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Random;
 
@@ -70,42 +69,17 @@ public class GroupTest {
      * @throws ComplianceException
      */
     public ArrayList<TestResult> performTest() throws ComplianceException {
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    if(method.getName().equals("PatchGroupTest")){
-                        SCIMServiceProviderConfig scimServiceProviderConfig = complianceTestMetaDataHolder.getScimServiceProviderConfig();
-                        if (scimServiceProviderConfig != null && scimServiceProviderConfig.getPatchSupported()){
-                            testResults.add((TestResult) method.invoke(this));
-                        } else {
-                            testResults.add(new TestResult(TestResult.SKIPPED,
-                                    "Patch Group Test", "Skipped",null));
-                        }
-                    } else{
-                        testResults.add((TestResult) method.invoke(this));
-                    }
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (GeneralComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in Group Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new ComplianceException("Error occurred in Group Test.");
-                } catch (CharonException e) {
-                    throw new ComplianceException("Error occurred in Group Test.");
-                }
-
+        TestCaseRunner testCaseRunner = new TestCaseRunner(this, "Group Test");
+        SCIMServiceProviderConfig scimServiceProviderConfig = complianceTestMetaDataHolder.getScimServiceProviderConfig();
+        try {
+            if (scimServiceProviderConfig == null || !scimServiceProviderConfig.getPatchSupported()) {
+                testCaseRunner.skipTestCase("PatchGroupTest", new TestResult(TestResult.SKIPPED,
+                        "Patch Group Test", "Skipped", null));
             }
+        } catch (CharonException e) {
+            throw new ComplianceException("Error occurred in Group Test.");
         }
-        return testResults;
+        return testCaseRunner.runTestCases();
     }
 
     /**
@@ -114,7 +88,7 @@ public class GroupTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 1, parallelSafe = true)
     public TestResult CreateGroupTest () throws GeneralComplianceException, ComplianceException {
 
         Group group = null;
@@ -123,7 +97,7 @@ public class GroupTest {
         definedGroup = "{\"displayName\": \"engineer\"}";
         HttpPost method = new HttpPost(url);
         //create group test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -142,20 +116,14 @@ public class GroupTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Create Group",
@@ -170,6 +138,8 @@ public class GroupTest {
             JSONDecoder jsonDecoder = new JSONDecoder();
             try {
                 group = (Group)jsonDecoder.decodeResource(responseString, schema, new Group());
+                // registered before validation, so that it is cleaned up whatever happens next
+                complianceTestMetaDataHolder.getCleanupQueue().register(url + "/" + group.getId());
             } catch (BadRequestException | CharonException | InternalErrorException e) {
                 try {
                     CleanUpGroup(group.getId(), "Group Create");
@@ -223,7 +193,7 @@ public class GroupTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 2, parallelSafe = true)
     public TestResult GetGroupTest () throws GeneralComplianceException, ComplianceException {
 
         String id = InitiateGroup("Get Group");
@@ -234,7 +204,7 @@ public class GroupTest {
 
         HttpGet method = new HttpGet(getGroupURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -249,19 +219,13 @@ public class GroupTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpGroup(id,"Get Group");
@@ -316,7 +280,7 @@ public class GroupTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 3, parallelSafe = true)
     public TestResult UpdateGroupTest () throws GeneralComplianceException, ComplianceException {
 
         Group group = null;
@@ -333,7 +297,7 @@ public class GroupTest {
 
         HttpPut method = new HttpPut(updateUserURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPut) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
 
@@ -354,19 +318,13 @@ public class GroupTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpGroup(id, "Update Group");
@@ -423,7 +381,7 @@ public class GroupTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 4, parallelSafe = true)
     public TestResult PatchGroupTest () throws GeneralComplianceException, ComplianceException {
 
         Group group = null;
@@ -437,7 +395,7 @@ public class GroupTest {
 
         HttpPatch method = new HttpPatch(patchGroupURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPatch) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
 
@@ -458,19 +416,13 @@ public class GroupTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpGroup(id, "Patch Group");
@@ -525,7 +477,7 @@ public class GroupTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 5, parallelSafe = true)
     public TestResult DeleteGroupTest () throws GeneralComplianceException, ComplianceException {
 
         Group group = null;
@@ -536,7 +488,7 @@ public class GroupTest {
 
         HttpDelete method = new HttpDelete(deleteGroupURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -552,20 +504,14 @@ public class GroupTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpGroup(id, "Delete Group");
@@ -589,7 +535,7 @@ public class GroupTest {
     }
 
     /**
-     * This method cleans the group with the given groupId and the user with the given id.
+     * This method cleans the group with the given groupId.
      * @param groupId
      * @param testName
      * @return
@@ -598,56 +544,9 @@ public class GroupTest {
      */
     public boolean CleanUpGroup (String groupId, String testName)
             throws GeneralComplianceException, ComplianceException {
-
-        String deleteGroupURL = null;
-        deleteGroupURL = url + "/" + groupId;
-
-        HttpDelete method = new HttpDelete(deleteGroupURL);
-
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        try {
-
-            response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-        } catch (Exception e) {
-            // Read the response body.
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
-                    "Could not delete the default group at url " + url,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-
-        if (response.getStatusLine().getStatusCode() == 204) {
-            return true;
-        } else {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
-                    "Could not delete the default group at url " + url,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
+        // deleted off the critical path of the test case, failures are reported at the end of the run
+        complianceTestMetaDataHolder.getCleanupQueue().delete(url + "/" + groupId);
+        return true;
     }
 
     /**
@@ -663,10 +562,11 @@ public class GroupTest {
         Group group = null;
         String definedGroup = null;
 
-        definedGroup = "{\"displayName\": \"YERFTERI\"}";
+        //name the group after the test case so that parallel test cases do not collide
+        definedGroup = "{\"displayName\": \"YERFTERI" + testName.replace(" ", "") + "\"}";
         HttpPost method = new HttpPost(url);
         //create group test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -685,20 +585,14 @@ public class GroupTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
@@ -713,6 +607,8 @@ public class GroupTest {
             JSONDecoder jsonDecoder = new JSONDecoder();
             try {
                 group = (Group)jsonDecoder.decodeResource(responseString, schema, new Group());
+                // registered before validation, so that it is cleaned up whatever happens next
+                complianceTestMetaDataHolder.getCleanupQueue().register(url + "/" + group.getId());
             } catch (BadRequestException | CharonException | InternalErrorException e) {
 
                 throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
@@ -19,11 +19,13 @@ import info.wso2.scim2.compliance.entities.TestResult;
 import info.wso2.scim2.compliance.exception.ComplianceException;
 import info.wso2.scim2.compliance.exception.GeneralComplianceException;
 import info.wso2.scim2.compliance.httpclient.HTTPClient;
+import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.WireCapture;
 import info.wso2.scim2.compliance.tests.common.ResponseValidateTests;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
-import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -38,8 +40,6 @@ import org.wso2.charon3.core.objects.User;
 import org.wso2.charon3.core.schema.SCIMResourceSchemaManager;
 import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 /**
@@ -66,42 +66,17 @@ public class MeTest {
      * @throws ComplianceException
      */
     public ArrayList<TestResult> performTest() throws ComplianceException {
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    if(method.getName().equals("PatchUserTest")){
-                        if (complianceTestMetaDataHolder.getScimServiceProviderConfig().getPatchSupported()){
-                            testResults.add((TestResult) method.invoke(this));
-                        }else {
-                            testResults.add(new TestResult(TestResult.SKIPPED,
-                                    "Patch Me Test", "Skipped",null));
-
-                        }
-                    } else{
-                        testResults.add((TestResult) method.invoke(this));
-                    }
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (GeneralComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in Me Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new ComplianceException("Error occurred in Me Test.");
-                } catch (CharonException e) {
-                    throw new ComplianceException("Error occurred in Me Test.");
-                }
-
+        TestCaseRunner testCaseRunner = new TestCaseRunner(this, "Me Test");
+        SCIMServiceProviderConfig scimServiceProviderConfig = complianceTestMetaDataHolder.getScimServiceProviderConfig();
+        try {
+            if (scimServiceProviderConfig == null || !scimServiceProviderConfig.getPatchSupported()) {
+                testCaseRunner.skipTestCase("PatchMeTest", new TestResult(TestResult.SKIPPED,
+                        "Patch Me Test", "Skipped", null));
             }
+        } catch (CharonException e) {
+            throw new ComplianceException("Error occurred in Me Test.");
         }
-        return testResults;
+        return testCaseRunner.runTestCases();
     }
 
     /**
@@ -110,13 +85,13 @@ public class MeTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 1)
     public TestResult CreateMeTest () throws GeneralComplianceException, ComplianceException {
 
         User user = null;
         HttpPost method = new HttpPost(url);
         //create user test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method.setHeader("Accept", "application/json");
         method.setHeader("Content-Type", "application/json");
@@ -135,20 +110,14 @@ public class MeTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Create Me",
@@ -164,6 +133,9 @@ public class MeTest {
             JSONDecoder jsonDecoder = new JSONDecoder();
             try {
                 user = (User)jsonDecoder.decodeResource(responseString, schema, new User());
+                // registered before validation, so that it is cleaned up whatever happens next
+                complianceTestMetaDataHolder.getCleanupQueue().register(complianceTestMetaDataHolder.getUrl()
+                        + ComplianceConstants.TestConstants.USERS_ENDPOINT + "/" + user.getId());
             } catch (BadRequestException | CharonException | InternalErrorException e) {
                 try {
                     CleanUpUser(user.getId(), "Create Me");
@@ -218,14 +190,14 @@ public class MeTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 2)
     public TestResult GetMeTest () throws GeneralComplianceException, ComplianceException {
 
         User user = null;
         String id = InitiateUser("Get Me");
         HttpGet method = new HttpGet(url);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(
                 ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME,
@@ -244,20 +216,14 @@ public class MeTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpUser(id, "Get Me");
@@ -312,14 +278,14 @@ public class MeTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 3)
     public TestResult UpdateMeTest () throws GeneralComplianceException, ComplianceException {
 
         User user = null;
         String id = InitiateUser("Update Me");
         HttpPut method = new HttpPut(url);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPut) HTTPClient.setAuthorizationHeader(
                 ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME,
@@ -344,20 +310,14 @@ public class MeTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpUser(id,"Update Me");
@@ -412,14 +372,14 @@ public class MeTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 4)
     public TestResult PatchMeTest () throws GeneralComplianceException, ComplianceException {
 
         User user = null;
         String id  = InitiateUser("Patch Me");
         HttpPatch method = new HttpPatch(url);
         //create user test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPatch) HTTPClient.setAuthorizationHeader(
                 ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME,
@@ -444,20 +404,14 @@ public class MeTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpUser(id,"Patch Me");
@@ -512,14 +466,14 @@ public class MeTest {
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 5)
     public TestResult DeleteMeTest () throws GeneralComplianceException, ComplianceException {
 
         User user = null;
         String id  = InitiateUser("Delete Me");
         HttpDelete method = new HttpDelete(url);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpDelete) HTTPClient.setAuthorizationHeader(
                 ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME,
@@ -539,20 +493,14 @@ public class MeTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             CleanUpUser(id,"Delete Me");
@@ -586,54 +534,12 @@ public class MeTest {
     public boolean CleanUpUser (String id, String testName) throws GeneralComplianceException, ComplianceException {
         String userEndpointURL =  complianceTestMetaDataHolder.getUrl() +
                 ComplianceConstants.TestConstants.USERS_ENDPOINT;
-        String deleteUserURL = userEndpointURL + "/" + id;
-
-        HttpDelete method = new HttpDelete(deleteUserURL);
-
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        try {
-
-            response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-        } catch (Exception e) {
-            // Read the response body.
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Delete Me",
-                    "Could not delete the default user at url " + url,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-
-        if (response.getStatusLine().getStatusCode() == 204) {
-            return true;
-        } else {
+        // every Me test case creates the same default user, hence it has to be gone before the next one
+        if (!complianceTestMetaDataHolder.getCleanupQueue().deleteAndWait(userEndpointURL + "/" + id)) {
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
-                    "Could not delete the default user at url " + url,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                    "Could not delete the default user at url " + userEndpointURL + "/" + id, null));
         }
+        return true;
     }
 
     /**
@@ -649,7 +555,7 @@ public class MeTest {
                 ComplianceConstants.TestConstants.USERS_ENDPOINT;
         HttpPost method = new HttpPost(userEndpointURL);
         //create user test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -669,20 +575,14 @@ public class MeTest {
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
@@ -698,6 +598,8 @@ public class MeTest {
             JSONDecoder jsonDecoder = new JSONDecoder();
             try {
                 user = (User)jsonDecoder.decodeResource(responseString, schema, new User());
+                // registered before validation, so that it is cleaned up whatever happens next
+                complianceTestMetaDataHolder.getCleanupQueue().register(userEndpointURL + "/" + user.getId());
 
             } catch (BadRequestException | CharonException | InternalErrorException e) {
                 throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.tests.common.LatencyHistogram;
+import info.wso2.scim2.compliance.tests.common.LoadRunner;
+import info.wso2.scim2.compliance.tests.common.SeededDataset;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.client.methods.HttpGet;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * This class consists of test cases walking the whole /Users collection page by page, after seeding it with
+ * scim2.compliance.paginationScaling.users users. The walk checks that totalResults holds on every page,
+ * that every user is returned exactly once, and that a second walk returns them in the same order. The
+ * latency of each page is measured against its startIndex, to find service providers whose deep pages
+ * degrade to a scan of the collection. It is run only when scim2.compliance.paginationScaling.enabled is set.
+ */
+public class PaginationScalingTest {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private String usersURL;
+    private LoadRunner loadRunner;
+    private SeededDataset seededDataset;
+    private int users;
+    private int pageSize;
+    private Walk firstWalk;
+    private Walk secondWalk;
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     */
+    public PaginationScalingTest(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+
+        usersURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.USERS_ENDPOINT;
+
+        loadRunner = new LoadRunner(complianceTestMetaDataHolder, Integer.getInteger(
+                ComplianceConstants.PerformanceConstants.CONCURRENCY_PROPERTY,
+                ComplianceConstants.PerformanceConstants.DEFAULT_CONCURRENCY));
+        seededDataset = new SeededDataset(complianceTestMetaDataHolder, loadRunner, "page");
+        users = Math.max(1, Integer.getInteger(ComplianceConstants.PaginationScalingConstants.USERS_PROPERTY,
+                ComplianceConstants.PaginationScalingConstants.DEFAULT_USERS));
+        pageSize = Math.max(1, Integer.getInteger(
+                ComplianceConstants.PaginationScalingConstants.PAGE_SIZE_PROPERTY,
+                ComplianceConstants.PaginationScalingConstants.DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * Check whether the pagination scaling test is enabled.
+     * @return
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ComplianceConstants.PaginationScalingConstants.ENABLED_PROPERTY);
+    }
+
+    /**
+     * Method to handle test cases.
+     * @return
+     * @throws ComplianceException
+     */
+    public ArrayList<TestResult> performTest() throws ComplianceException {
+        try {
+            return new TestCaseRunner(this, "Pagination Scaling Test").runTestCases();
+        } finally {
+            seededDataset.delete();
+        }
+    }
+
+    /**
+     * Seed the users.
+     * @return
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    @TestCase(order = 1)
+    public TestResult SeedPaginationUsers() throws ComplianceException, GeneralComplianceException {
+        return seededDataset.grow(users, "Seed Pagination Users");
+    }
+
+    /**
+     * Walk the whole collection, checking totalResults and that every user is returned exactly once.
+     * @return
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    @TestCase(order = 2)
+    public TestResult PaginateAllUsers() throws ComplianceException, GeneralComplianceException {
+        firstWalk = walk("Paginate All Users");
+        ArrayList<String> subTests = new ArrayList<>();
+        ArrayList<String> problems = new ArrayList<>();
+
+        subTests.add(ComplianceConstants.TestConstants.PAGINATION_TOTAL_RESULTS_TEST);
+        if (firstWalk.ids.size() != firstWalk.totalResults) {
+            problems.add(firstWalk.ids.size() + " users were returned, though totalResults is "
+                    + firstWalk.totalResults + ".");
+        }
+        subTests.add(ComplianceConstants.TestConstants.PAGINATION_DUPLICATES_TEST);
+        HashSet<String> returned = new HashSet<>(firstWalk.ids);
+        if (returned.size() != firstWalk.ids.size()) {
+            problems.add((firstWalk.ids.size() - returned.size()) + " users were returned more than once.");
+        }
+        subTests.add(ComplianceConstants.TestConstants.PAGINATION_GAPS_TEST);
+        int missing = 0;
+        for (String id : seededDataset.getIDs()) {
+            if (!returned.contains(id)) {
+                missing++;
+            }
+        }
+        if (missing > 0) {
+            problems.add(missing + " of the seeded users were not returned on any page.");
+        }
+
+        Wire wire = firstWalk.getWire(subTests);
+        if (!problems.isEmpty()) {
+            return new TestResult(TestResult.ERROR, "Paginate All Users", String.join(" ", problems), wire);
+        }
+        return new TestResult(TestResult.SUCCESS, "Paginate All Users", String.format(
+                "Walked %d pages of %d users, %d per page, in %.1f s.", firstWalk.pages.size(),
+                firstWalk.totalResults, pageSize, firstWalk.elapsedNanos / 1e9), wire);
+    }
+
+    /**
+     * Walk the whole collection again, checking that the users are returned in the same order.
+     * @return
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    @TestCase(order = 3)
+    public TestResult PaginationOrderStability() throws ComplianceException, GeneralComplianceException {
+        if (firstWalk == null) {
+            return new TestResult(TestResult.SKIPPED, "Pagination Order Stability", "Skipped", null);
+        }
+        secondWalk = walk("Pagination Order Stability");
+        ArrayList<String> subTests = new ArrayList<>();
+        subTests.add(ComplianceConstants.TestConstants.PAGINATION_ORDER_TEST);
+        int length = Math.min(firstWalk.ids.size(), secondWalk.ids.size());
+        for (int i = 0; i < length; i++) {
+            if (!firstWalk.ids.get(i).equals(secondWalk.ids.get(i))) {
+                return new TestResult(TestResult.ERROR, "Pagination Order Stability",
+                        "The user at index " + (i + 1) + " changed from " + firstWalk.ids.get(i) + " to "
+                                + secondWalk.ids.get(i) + " between two walks of the collection.",
+                        secondWalk.getWire(subTests));
+            }
+        }
+        if (firstWalk.ids.size() != secondWalk.ids.size()) {
+            return new TestResult(TestResult.ERROR, "Pagination Order Stability",
+                    "The first walk returned " + firstWalk.ids.size() + " users and the second "
+                            + secondWalk.ids.size() + ".", secondWalk.getWire(subTests));
+        }
+        return new TestResult(TestResult.SUCCESS, "Pagination Order Stability",
+                "Both walks returned the users in the same order.", secondWalk.getWire(subTests));
+    }
+
+    /**
+     * Compare the latency of the deep pages with that of the first pages.
+     * @return
+     */
+    @TestCase(order = 4)
+    public TestResult DeepPageLatency() {
+        if (firstWalk == null || firstWalk.totalResults == 0) {
+            return new TestResult(TestResult.SKIPPED, "Deep Page Latency", "Skipped", null);
+        }
+        int segments = ComplianceConstants.PaginationScalingConstants.LATENCY_SEGMENTS;
+        LatencyHistogram[] histograms = new LatencyHistogram[segments];
+        for (int i = 0; i < segments; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        ArrayList<long[]> pages = new ArrayList<>(firstWalk.pages);
+        if (secondWalk != null) {
+            pages.addAll(secondWalk.pages);
+        }
+        // least squares fit of the latency against the startIndex
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (long[] page : pages) {
+            int segment = (int) Math.min(segments - 1, (page[0] - 1) * segments / firstWalk.totalResults);
+            histograms[segment].record(page[1]);
+            sumX += page[0];
+            sumY += page[1];
+            sumXX += (double) page[0] * page[0];
+            sumXY += (double) page[0] * page[1];
+        }
+        double denominator = pages.size() * sumXX - sumX * sumX;
+        // microseconds per user skipped, which is also milliseconds per thousand users skipped
+        double slope = denominator == 0 ? 0 : (pages.size() * sumXY - sumX * sumY) / denominator;
+
+        StringBuilder latencies = new StringBuilder();
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < segments; i++) {
+            if (histograms[i].getTotalCount() == 0) {
+                continue;
+            }
+            first = first < 0 ? i : first;
+            last = i;
+            latencies.append(String.format(
+                    "startIndex %d - %d : %d pages, p50 %.1f ms, p95 %.1f ms, max %.1f ms%n",
+                    (long) i * firstWalk.totalResults / segments + 1,
+                    (long) (i + 1) * firstWalk.totalResults / segments, histograms[i].getTotalCount(),
+                    histograms[i].getValueAtPercentile(50) / 1000.0,
+                    histograms[i].getValueAtPercentile(95) / 1000.0, histograms[i].getMaxValue() / 1000.0));
+        }
+        long firstMedian = histograms[first].getValueAtPercentile(50);
+        long lastMedian = histograms[last].getValueAtPercentile(50);
+        String message = String.format("First pages p50 %.1f ms, last pages p50 %.1f ms, %.2f ms more per "
+                + "1000 users skipped.", firstMedian / 1000.0, lastMedian / 1000.0, slope);
+        Wire wire = new Wire(firstWalk.sampleRequest, "", latencies.toString());
+
+        if (lastMedian > ComplianceConstants.PaginationScalingConstants.DEGRADATION_THRESHOLD
+                && lastMedian > firstMedian * ComplianceConstants.PaginationScalingConstants.DEGRADATION_FACTOR) {
+            return new TestResult(TestResult.ERROR, "Deep Page Latency",
+                    message + " The deep pages are more than "
+                            + ComplianceConstants.PaginationScalingConstants.DEGRADATION_FACTOR
+                            + " times slower than the first pages.", wire);
+        }
+        return new TestResult(TestResult.SUCCESS, "Deep Page Latency", message, wire);
+    }
+
+    /*
+     * Get every page of the collection, in order.
+     */
+    private Walk walk(String testName) throws ComplianceException, GeneralComplianceException {
+        Walk walk = new Walk();
+        long startedAt = System.nanoTime();
+        int startIndex = 1;
+        while (true) {
+            HttpGet method = new HttpGet(usersURL + "?startIndex=" + startIndex + "&count=" + pageSize
+                    + "&attributes=id");
+            method.setHeader("Accept", "application/json");
+            LoadRunner.Response response;
+            try {
+                response = loadRunner.send(method);
+            } catch (IOException e) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "Could not get the page at startIndex " + startIndex + " of url " + usersURL,
+                        ComplianceUtils.getWire(e)));
+            }
+            if (walk.sampleRequest == null) {
+                walk.sampleRequest = method.getRequestLine().toString();
+                walk.firstPage = method;
+                walk.firstResponse = response;
+            }
+            ArrayList<String> subTests = new ArrayList<>();
+            if (response.getStatusCode() != 200) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "Could not get the page at startIndex " + startIndex + " of url " + usersURL,
+                        ComplianceUtils.getWire(method, response.getResponseString(), response.getHeaderString(),
+                                response.getResponseStatus(), subTests)));
+            }
+            int totalResults;
+            JSONArray resources;
+            try {
+                JSONObject page = new JSONObject(response.getResponseString());
+                totalResults = page.getInt("totalResults");
+                resources = page.optJSONArray("Resources");
+                for (int i = 0; resources != null && i < resources.length(); i++) {
+                    walk.ids.add(resources.getJSONObject(i).getString("id"));
+                }
+            } catch (JSONException e) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "The page at startIndex " + startIndex + " is not a valid list response.",
+                        ComplianceUtils.getWire(method, response.getResponseString(), response.getHeaderString(),
+                                response.getResponseStatus(), subTests)));
+            }
+            int returned = resources == null ? 0 : resources.length();
+            walk.pages.add(new long[]{startIndex, response.getLatency()});
+
+            subTests.add(ComplianceConstants.TestConstants.PAGINATION_TOTAL_RESULTS_TEST);
+            if (walk.totalResults < 0) {
+                walk.totalResults = totalResults;
+            } else if (totalResults != walk.totalResults) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "totalResults changed from " + walk.totalResults + " to " + totalResults
+                                + " at startIndex " + startIndex + ".",
+                        ComplianceUtils.getWire(method, response.getResponseString(), response.getHeaderString(),
+                                response.getResponseStatus(), subTests)));
+            }
+            if (returned > pageSize) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "The page at startIndex " + startIndex + " has " + returned + " users, though "
+                                + pageSize + " were asked for.",
+                        ComplianceUtils.getWire(method, response.getResponseString(), response.getHeaderString(),
+                                response.getResponseStatus(), subTests)));
+            }
+            startIndex += returned;
+            if (startIndex > walk.totalResults) {
+                break;
+            }
+            if (returned == 0) {
+                subTests.add(ComplianceConstants.TestConstants.PAGINATION_GAPS_TEST);
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "The page at startIndex " + startIndex + " is empty, though totalResults is "
+                                + walk.totalResults + ".",
+                        ComplianceUtils.getWire(method, response.getResponseString(), response.getHeaderString(),
+                                response.getResponseStatus(), subTests)));
+            }
+        }
+        walk.elapsedNanos = System.nanoTime() - startedAt;
+        return walk;
+    }
+
+    /**
+     * The users of a walk over the collection, in the order they were returned, and the latency of each page.
+     */
+    private static class Walk {
+
+        private int totalResults = -1;
+        private List<String> ids = new ArrayList<>();
+        // startIndex, latency in microseconds
+        private List<long[]> pages = new ArrayList<>();
+        private long elapsedNanos;
+        private String sampleRequest;
+        private HttpGet firstPage;
+        private LoadRunner.Response firstResponse;
+
+        private Wire getWire(ArrayList<String> subTests) throws ComplianceException {
+            return ComplianceUtils.getWire(firstPage, firstResponse.getResponseString(),
+                    firstResponse.getHeaderString(), firstResponse.getResponseStatus(), subTests);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.tests.common.BulkProvisioner;
+import info.wso2.scim2.compliance.tests.common.CleanupQueue;
+import info.wso2.scim2.compliance.tests.common.LoadRunner;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This class consists of test cases measuring the latency and the throughput of the service provider under
+ * concurrent load on the /Users, /Groups, /Me and /Bulk endpoints. It is run only when
+ * scim2.compliance.performance.enabled is set. A test case fails if any of its requests fail, the latencies
+ * are reported in its result either way.
+ */
+public class PerformanceTest {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private String usersURL;
+    private String groupsURL;
+    private String meURL;
+    private String bulkURL;
+    private LoadRunner loadRunner;
+    private int operations;
+    // keeps the resources of concurrent runs against the same service provider apart
+    private String runId = UUID.randomUUID().toString().substring(0, 8);
+
+    // filled by the create test cases, from the load runner threads
+    private List<String> userLocations = Collections.synchronizedList(new ArrayList<String>());
+    private List<String> userNames = Collections.synchronizedList(new ArrayList<String>());
+    private List<String> groupLocations = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     */
+    public PerformanceTest(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+
+        usersURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.USERS_ENDPOINT;
+        groupsURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.GROUPS_ENDPOINT;
+        meURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.ME_ENDPOINT;
+        bulkURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.BULK_ENDPOINT;
+
+        loadRunner = new LoadRunner(complianceTestMetaDataHolder, Integer.getInteger(
+                ComplianceConstants.PerformanceConstants.CONCURRENCY_PROPERTY,
+                ComplianceConstants.PerformanceConstants.DEFAULT_CONCURRENCY));
+        operations = Math.max(1, Integer.getInteger(ComplianceConstants.PerformanceConstants.OPERATIONS_PROPERTY,
+                ComplianceConstants.PerformanceConstants.DEFAULT_OPERATIONS));
+    }
+
+    /**
+     * Check whether the performance test is enabled.
+     * @return
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ComplianceConstants.PerformanceConstants.ENABLED_PROPERTY);
+    }
+
+    /**
+     * Method to handle test cases.
+     * @return
+     * @throws ComplianceException
+     */
+    public ArrayList<TestResult> performTest() throws ComplianceException {
+        TestCaseRunner testCaseRunner = new TestCaseRunner(this, "Performance Test");
+        if (!BulkProvisioner.isBulkSupported(complianceTestMetaDataHolder)) {
+            testCaseRunner.skipTestCase("BulkPerformance", new TestResult(TestResult.SKIPPED,
+                    "Bulk Performance", "Skipped", null));
+        }
+        return testCaseRunner.runTestCases();
+    }
+
+    /**
+     * Create users concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 1)
+    public TestResult CreateUsersPerformance() throws ComplianceException {
+        final CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        return loadRunner.run("Create Users Performance", operations, new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) throws ComplianceException {
+                return post(usersURL, getUser(getUserName(index)));
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                String location = getLocation(usersURL, statusCode, responseString);
+                if (location == null) {
+                    return false;
+                }
+                cleanupQueue.register(location);
+                userLocations.add(location);
+                userNames.add(getUserName(index));
+                return true;
+            }
+        }).toTestResult();
+    }
+
+    /**
+     * Get the created users concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 2)
+    public TestResult GetUserPerformance() throws ComplianceException {
+        return get("Get User Performance", snapshot(userLocations));
+    }
+
+    /**
+     * Filter the created users by user name concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 3)
+    public TestResult FilterUsersPerformance() throws ComplianceException {
+        final List<String> names = snapshot(userNames);
+        if (names.isEmpty()) {
+            return new TestResult(TestResult.ERROR, "Filter Users Performance",
+                    "Could not create the users at url " + usersURL, null);
+        }
+        return loadRunner.run("Filter Users Performance", operations, new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) {
+                return accept(new HttpGet(usersURL + "?filter=userName+eq+" + names.get(index % names.size())));
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                try {
+                    return statusCode == 200 && new JSONObject(responseString).optInt("totalResults") == 1;
+                } catch (JSONException e) {
+                    return false;
+                }
+            }
+        }).toTestResult();
+    }
+
+    /**
+     * Create groups concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 4)
+    public TestResult CreateGroupsPerformance() throws ComplianceException {
+        final CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        return loadRunner.run("Create Groups Performance", operations, new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) throws ComplianceException {
+                return post(groupsURL, "{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:Group\"],"
+                        + "\"displayName\":\"perf-" + runId + "-group-" + index + "\"}");
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                String location = getLocation(groupsURL, statusCode, responseString);
+                if (location == null) {
+                    return false;
+                }
+                cleanupQueue.register(location);
+                groupLocations.add(location);
+                return true;
+            }
+        }).toTestResult();
+    }
+
+    /**
+     * Get the created groups concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 5)
+    public TestResult GetGroupPerformance() throws ComplianceException {
+        return get("Get Group Performance", snapshot(groupLocations));
+    }
+
+    /**
+     * Get the authenticated user concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 6)
+    public TestResult GetMePerformance() throws ComplianceException {
+        return get("Get Me Performance", Collections.singletonList(meURL));
+    }
+
+    /**
+     * Create users in bulk requests concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 7)
+    public TestResult BulkPerformance() throws ComplianceException {
+        final CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        final int batchSize = ComplianceConstants.PerformanceConstants.BULK_OPERATIONS_PER_REQUEST;
+        return loadRunner.run("Bulk Performance", Math.max(1, operations / batchSize), new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) throws ComplianceException {
+                try {
+                    JSONArray bulkOperations = new JSONArray();
+                    for (int i = 0; i < batchSize; i++) {
+                        JSONObject operation = new JSONObject();
+                        operation.put("method", "POST");
+                        operation.put("path", ComplianceConstants.TestConstants.USERS_ENDPOINT);
+                        operation.put("bulkId", String.valueOf(i));
+                        operation.put("data", new JSONObject(getUser(getUserName(index * batchSize + i)
+                                + "-bulk")));
+                        bulkOperations.put(operation);
+                    }
+                    JSONObject bulkRequest = new JSONObject();
+                    bulkRequest.put("schemas", new JSONArray().put(
+                            ComplianceConstants.BulkConstants.BULK_REQUEST_SCHEMA));
+                    bulkRequest.put("Operations", bulkOperations);
+                    return post(bulkURL, bulkRequest.toString());
+                } catch (JSONException e) {
+                    throw new ComplianceException("Could not build the bulk request.");
+                }
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                if (statusCode != 200) {
+                    return false;
+                }
+                try {
+                    ArrayList<String> locations = BulkProvisioner.getLocations(responseString);
+                    for (String location : locations) {
+                        cleanupQueue.register(location);
+                        userLocations.add(location);
+                    }
+                    return locations.size() == batchSize;
+                } catch (JSONException | RuntimeException e) {
+                    return false;
+                }
+            }
+        }).toTestResult();
+    }
+
+    /**
+     * Delete the created users and groups concurrently.
+     * @return
+     * @throws ComplianceException
+     */
+    @TestCase(order = 8)
+    public ArrayList<TestResult> DeletePerformance() throws ComplianceException {
+        ArrayList<TestResult> testResults = new ArrayList<>();
+        testResults.add(delete("Delete User Performance", snapshot(userLocations)));
+        testResults.add(delete("Delete Group Performance", snapshot(groupLocations)));
+        return testResults;
+    }
+
+    private TestResult get(String name, final List<String> locations) throws ComplianceException {
+        if (locations.isEmpty()) {
+            return new TestResult(TestResult.ERROR, name, "There are no resources to get.", null);
+        }
+        return loadRunner.run(name, operations, new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) {
+                return accept(new HttpGet(locations.get(index % locations.size())));
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                return statusCode == 200;
+            }
+        }).toTestResult();
+    }
+
+    private TestResult delete(String name, final List<String> locations) throws ComplianceException {
+        if (locations.isEmpty()) {
+            return new TestResult(TestResult.ERROR, name, "There are no resources to delete.", null);
+        }
+        final CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        return loadRunner.run(name, locations.size(), new LoadRunner.Operation() {
+            public HttpRequestBase newRequest(int index) {
+                return accept(new HttpDelete(locations.get(index)));
+            }
+
+            public boolean completed(int index, int statusCode, String responseString) {
+                if (statusCode != 204) {
+                    return false;
+                }
+                cleanupQueue.completed(Collections.singletonList(locations.get(index)));
+                return true;
+            }
+        }).toTestResult();
+    }
+
+    private String getUserName(int index) {
+        return "perf-" + runId + "-user-" + index;
+    }
+
+    private static String getUser(String userName) {
+        return "{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],\"userName\":\"" + userName
+                + "\",\"password\":\"" + ComplianceConstants.DefinedInstances.DEFINED_USER_PASSWORD + "\"}";
+    }
+
+    private static HttpRequestBase post(String url, String body) {
+        HttpPost method = new HttpPost(url);
+        method.setHeader("Content-Type", "application/json");
+        method.setEntity(new ByteArrayEntity(body.getBytes(StandardCharsets.UTF_8)));
+        return accept(method);
+    }
+
+    private static HttpRequestBase accept(HttpRequestBase method) {
+        method.setHeader("Accept", "application/json");
+        return method;
+    }
+
+    /*
+     * Location of a created resource, from its id.
+     */
+    private static String getLocation(String url, int statusCode, String responseString) {
+        if (statusCode != 201) {
+            return null;
+        }
+        try {
+            String id = new JSONObject(responseString).optString("id", null);
+            return id == null ? null : url + "/" + id;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static List<String> snapshot(List<String> list) {
+        synchronized (list) {
+            return new ArrayList<>(list);
+        }
+    }
+}
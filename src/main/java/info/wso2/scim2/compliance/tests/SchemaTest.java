@@ -7,16 +7,20 @@ import info.wso2.scim2.compliance.httpclient.HTTPClient;
 import info.wso2.scim2.compliance.objects.SCIMSchema;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.DiscoveryCache;
+import info.wso2.scim2.compliance.protocol.WireCapture;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
 import info.wso2.scim2.compliance.utils.SchemaBuilder;
 import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.util.EntityUtils;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 /**
@@ -38,30 +42,7 @@ public class SchemaTest {
      * Test is to get the service provider configurations from service provider.
      **/
     public ArrayList<TestResult> performTest() throws CriticalComplianceException, ComplianceException {
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    testResults.add((TestResult) method.invoke(this));
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (CriticalComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in Schema Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new ComplianceException("Error occurred in Schema Test.");
-                }
-
-            }
-        }
-        return testResults;
+        return new TestCaseRunner(this, "Schema Test").runTestCases();
     }
 
     /**
@@ -73,6 +54,10 @@ public class SchemaTest {
     @TestCase
     public TestResult getSchemasTest() throws CriticalComplianceException, ComplianceException {
 
+        // the schemas of an earlier run against the same service provider are reused when not modified
+        DiscoveryCache.Entry<SCIMSchema> cached = DiscoveryCache.get(complianceTestMetaDataHolder,
+                ComplianceConstants.TestConstants.SCHEMAS_ENDPOINT);
+
         // set the scim schema object
         complianceTestMetaDataHolder.setScimSchema(scimSchema);
 
@@ -82,10 +67,13 @@ public class SchemaTest {
         // specify the get request
         HttpGet method = new HttpGet(url);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
+        if (cached != null && cached.getETag() != null) {
+            method.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+        }
 
         HttpResponse response = null;
         String responseString = "";
@@ -96,21 +84,19 @@ public class SchemaTest {
         try {
             //get the schemas
             response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
+            if (cached != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                EntityUtils.consume(response.getEntity());
+            } else {
+                // Read the response body.
+                responseString = new BasicResponseHandler().handleResponse(response);
             }
+            //get all headers
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
@@ -120,16 +106,28 @@ public class SchemaTest {
                             ComplianceUtils.getWire(method, responseString,
                                     headerString, responseStatus, subTests)));
         }
+        if (cached != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            cached.revalidated();
+            complianceTestMetaDataHolder.setScimSchema(cached.getValue());
+            return new TestResult
+                    (TestResult.SUCCESS, "Get Schemas",
+                            "Schemas of an earlier run are not modified", ComplianceUtils.getWire(method,
+                            responseString, headerString, responseStatus, subTests));
+        }
         if (response.getStatusLine().getStatusCode() == 200) {
 
             //build the schemas according to service provider.
             SchemaBuilder.buildSchema(responseString, method, headerString, responseStatus,
                     subTests, url, scimSchema);
 
-            return new TestResult
+            TestResult testResult = new TestResult
                     (TestResult.SUCCESS, "Get Schemas",
                             "", ComplianceUtils.getWire(method, responseString, headerString,
                             responseStatus, subTests));
+            Header eTag = response.getFirstHeader(HttpHeaders.ETAG);
+            DiscoveryCache.put(complianceTestMetaDataHolder, ComplianceConstants.TestConstants.SCHEMAS_ENDPOINT,
+                    scimSchema, eTag == null ? null : eTag.getValue(), testResult.getWire());
+            return testResult;
         } else {
             return new TestResult
                     (TestResult.ERROR, "Get Schemas",
@@ -12,4 +12,14 @@ import java.lang.annotation.Target;
 @Retention(value = RetentionPolicy.RUNTIME)
 public @interface TestCase {
 
-}
\ No newline at end of file
+    /**
+     * Whether the test case can overlap with the other parallel safe test cases of the same class.
+     * A parallel safe test case must only touch fixtures that no other test case of the class uses.
+     */
+    boolean parallelSafe() default false;
+
+    /**
+     * Position of the test case within its class. Test cases with the same order run by method name.
+     */
+    int order() default 0;
+}
@@ -22,9 +22,10 @@ import info.wso2.scim2.compliance.httpclient.HTTPClient;
 import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
 import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
 import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.WireCapture;
 import info.wso2.scim2.compliance.tests.common.ResponseValidateTests;
+import info.wso2.scim2.compliance.tests.common.TestCaseRunner;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
-import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -39,8 +40,6 @@ import org.wso2.charon3.core.objects.User;
 import org.wso2.charon3.core.schema.SCIMResourceSchemaManager;
 import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 /**
@@ -69,41 +68,19 @@ public class UserTest{
      * @throws ComplianceException
      */
     public ArrayList<TestResult> performTest() throws ComplianceException {
-        ArrayList<TestResult> testResults = new ArrayList<>();
-        Method[] methods = this.getClass().getMethods();
-        for (Method method : methods) {
-            TestCase annos = method.getAnnotation(TestCase.class);
-            if (annos != null) {
-                try {
-                    if(method.getName().equals("PatchUserTest")){
-                        SCIMServiceProviderConfig scimServiceProviderConfig = complianceTestMetaDataHolder.getScimServiceProviderConfig();
-                        if (scimServiceProviderConfig != null && scimServiceProviderConfig.getPatchSupported()){
-                            testResults.add((TestResult) method.invoke(this));
-                        }else {
-                            testResults.add(new TestResult(TestResult.SKIPPED,
-                                    "Patch User Test", "Skipped",null));
-                        }
-                    } else{
-                        testResults.add((TestResult) method.invoke(this));
-                    }
-                } catch (InvocationTargetException e) {
-                    try{
-                        throw  e.getCause();
-                    } catch (ComplianceException e1) {
-                        throw e1;
-                    } catch (GeneralComplianceException e1){
-                        testResults.add(e1.getResult());
-                    } catch (Throwable throwable) {
-                        throw new ComplianceException("Error occurred in User Test.");
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new ComplianceException("Error occurred in User Test.");
-                } catch (CharonException e) {
-                    throw new ComplianceException("Error occurred in User Test.");
-                }
-
+        TestCaseRunner testCaseRunner = new TestCaseRunner(this, "User Test");
+        SCIMServiceProviderConfig scimServiceProviderConfig = complianceTestMetaDataHolder.getScimServiceProviderConfig();
+        try {
+            if (scimServiceProviderConfig == null || !scimServiceProviderConfig.getPatchSupported()) {
+                testCaseRunner.skipTestCase("PatchUserTest", new TestResult(TestResult.SKIPPED,
+                        "Patch User Test", "Skipped", null));
             }
+        } catch (CharonException e) {
+            throw new ComplianceException("Error occurred in User Test.");
         }
+        ArrayList<TestResult> testResults = testCaseRunner.runTestCases();
+        // Me Test creates users with the same names, hence they have to be gone before this suite completes
+        complianceTestMetaDataHolder.getCleanupQueue().awaitInFlight();
         return testResults;
     }
 
@@ -113,13 +90,13 @@ public class UserTest{
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 1)
     public TestResult CreateUserTest () throws GeneralComplianceException, ComplianceException {
 
         User user = null;
         HttpPost method = new HttpPost(url);
         //create user test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -139,20 +116,14 @@ public class UserTest{
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Create User",
@@ -168,6 +139,8 @@ public class UserTest{
             JSONDecoder jsonDecoder = new JSONDecoder();
             try {
                 user = (User)jsonDecoder.decodeResource(responseString, schema, new User());
+                // registered before validation, so that it is cleaned up whatever happens next
+                complianceTestMetaDataHolder.getCleanupQueue().register(url + "/" + user.getId());
 
             } catch (BadRequestException | CharonException | InternalErrorException e) {
                 try {
@@ -222,7 +195,7 @@ public class UserTest{
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 2, parallelSafe = true)
     public TestResult GetUserTest () throws GeneralComplianceException, ComplianceException {
         //create default user;
         String id = InitiateUser("Get User");
@@ -231,7 +204,7 @@ public class UserTest{
 
         HttpGet method = new HttpGet(getUserURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpGet) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -246,20 +219,14 @@ public class UserTest{
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             //clean the created user
@@ -319,7 +286,7 @@ public class UserTest{
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 3, parallelSafe = true)
     public TestResult UpdateUserTest () throws GeneralComplianceException, ComplianceException {
 
         String id  = InitiateUser("Update User");
@@ -329,7 +296,7 @@ public class UserTest{
 
         HttpPut method = new HttpPut(updateUserURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPut) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
 
@@ -339,9 +306,11 @@ public class UserTest{
         String responseStatus = "";
         ArrayList<String> subTests =  new ArrayList<>();
         try {
-            //update the user
-            HttpEntity entity = new ByteArrayEntity
-                    (ComplianceConstants.DefinedInstances.DEFINED_UPDATED_USER.getBytes("UTF-8"));
+            //update the user, keeping the name it was created with so that parallel test cases do not collide
+            String definedUpdatedUser = ComplianceConstants.DefinedInstances.DEFINED_UPDATED_USER.replace(
+                    ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME,
+                    getTestUserName("Update User"));
+            HttpEntity entity = new ByteArrayEntity(definedUpdatedUser.getBytes("UTF-8"));
             method.setEntity(entity);
             method.setHeader("Accept", "application/json");
             method.setHeader("Content-Type", "application/json");
@@ -351,20 +320,14 @@ public class UserTest{
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             //clean the created user
@@ -424,7 +387,7 @@ public class UserTest{
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 4, parallelSafe = true)
     public TestResult PatchUserTest () throws GeneralComplianceException, ComplianceException {
         String id  = InitiateUser("Patch User");
         User user = null;
@@ -433,7 +396,7 @@ public class UserTest{
 
         HttpPatch method = new HttpPatch(patchUserURL);
         //create user test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPatch) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
 
@@ -455,20 +418,14 @@ public class UserTest{
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             //clean the created user
@@ -528,7 +485,7 @@ public class UserTest{
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
-    @TestCase
+    @TestCase(order = 5, parallelSafe = true)
     public TestResult DeleteUserTest () throws GeneralComplianceException, ComplianceException {
 
         String id = InitiateUser("Delete User");
@@ -538,7 +495,7 @@ public class UserTest{
 
         HttpDelete method = new HttpDelete(deleteUserURL);
 
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -554,20 +511,14 @@ public class UserTest{
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             //clean the created user
@@ -595,59 +546,25 @@ public class UserTest{
     /**
      * This method cleans up the created used with the given id.
      * @param id
+     * @param testName
      * @return
      * @throws GeneralComplianceException
      * @throws ComplianceException
      */
     public boolean CleanUpUser (String id, String testName) throws GeneralComplianceException, ComplianceException {
+        // deleted off the critical path of the test case, failures are reported at the end of the run
+        complianceTestMetaDataHolder.getCleanupQueue().delete(url + "/" + id);
+        return true;
+    }
 
-        String deleteUserURL = url + "/" + id;
-
-        HttpDelete method = new HttpDelete(deleteUserURL);
-
-        HttpClient client = HTTPClient.getHttpClient();
-
-        method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
-        method.setHeader("Accept", "application/json");
-
-        HttpResponse response = null;
-        String responseString = "";
-        String headerString = "";
-        String responseStatus = "";
-        ArrayList<String> subTests =  new ArrayList<>();
-        try {
-
-            response = client.execute(method);
-            // Read the response body.
-            responseString = new BasicResponseHandler().handleResponse(response);
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-
-        } catch (Exception e) {
-            // Read the response body.
-            //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
-            responseStatus = response.getStatusLine().getStatusCode() + " "
-                    + response.getStatusLine().getReasonPhrase();
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
-                    "Could not delete the default user at url " + url,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
-        if (response.getStatusLine().getStatusCode() == 204) {
-            return true;
-        } else {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
-                    "Could not delete the default user at url " + url,
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
-        }
+    /**
+     * Get the userName of the user a test case creates, which is named after the test case so that parallel
+     * test cases do not collide.
+     * @param testName
+     * @return
+     */
+    private String getTestUserName(String testName) {
+        return ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME + testName.replace(" ", "");
     }
 
     /**
@@ -662,7 +579,7 @@ public class UserTest{
 
         HttpPost method = new HttpPost(url);
         //create user test
-        HttpClient client = HTTPClient.getHttpClient();
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
 
         method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
         method.setHeader("Accept", "application/json");
@@ -674,28 +591,24 @@ public class UserTest{
         String responseStatus = "";
         ArrayList<String> subTests =  new ArrayList<>();
         try {
-            //create the user
-            HttpEntity entity = new ByteArrayEntity
-                    (ComplianceConstants.DefinedInstances.DEFINED_USER.getBytes("UTF-8"));
+            //create the user, named after the test case so that parallel test cases do not collide
+            String definedUser = ComplianceConstants.DefinedInstances.DEFINED_USER.replace(
+                    ComplianceConstants.DefinedInstances.DEFINED_USER_USERNAME,
+                    getTestUserName(testName));
+            HttpEntity entity = new ByteArrayEntity(definedUser.getBytes("UTF-8"));
             method.setEntity(entity);
             response = client.execute(method);
             // Read the response body.
             responseString = new BasicResponseHandler().handleResponse(response);
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " " +
                     response.getStatusLine().getReasonPhrase();
 
         } catch (Exception e) {
             // Read the response body.
             //get all headers
-            Header[] headers = response.getAllHeaders();
-            for (Header header : headers) {
-                headerString += header.getName() + " : " + header.getValue() + "\n";
-            }
+            headerString = WireCapture.getHeaderString(response);
             responseStatus = response.getStatusLine().getStatusCode() + " "
                     + response.getStatusLine().getReasonPhrase();
             throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
@@ -711,6 +624,8 @@ public class UserTest{
             JSONDecoder jsonDecoder = new JSONDecoder();
             try {
                 user = (User)jsonDecoder.decodeResource(responseString, schema, new User());
+                // registered before validation, so that it is cleaned up whatever happens next
+                complianceTestMetaDataHolder.getCleanupQueue().register(url + "/" + user.getId());
 
             } catch (BadRequestException | CharonException | InternalErrorException e) {
                 throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
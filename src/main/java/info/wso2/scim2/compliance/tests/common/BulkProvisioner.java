@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.httpclient.HTTPClient;
+import info.wso2.scim2.compliance.objects.SCIMServiceProviderConfig;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.WireCapture;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.charon3.core.exceptions.CharonException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This creates and deletes resources through the /Bulk endpoint. Operations are sent in as few requests
+ * as the maxOperations and maxPayloadSize advertised by the service provider allow.
+ */
+public class BulkProvisioner {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private String bulkURL;
+    private int maxOperations = ComplianceConstants.BulkConstants.DEFAULT_MAX_OPERATIONS;
+    private int maxPayloadSize = ComplianceConstants.BulkConstants.DEFAULT_MAX_PAYLOAD_SIZE;
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     * @throws ComplianceException
+     */
+    public BulkProvisioner(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) throws ComplianceException {
+
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+
+        bulkURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.BULK_ENDPOINT;
+
+        SCIMServiceProviderConfig scimServiceProviderConfig =
+                complianceTestMetaDataHolder.getScimServiceProviderConfig();
+        if (scimServiceProviderConfig != null) {
+            try {
+                if (scimServiceProviderConfig.getBulkMaxOperations() > 0) {
+                    maxOperations = scimServiceProviderConfig.getBulkMaxOperations();
+                }
+                if (scimServiceProviderConfig.getBulkMaxPayloadSize() > 0) {
+                    maxPayloadSize = scimServiceProviderConfig.getBulkMaxPayloadSize();
+                }
+            } catch (CharonException e) {
+                throw new ComplianceException(e.getDetail());
+            }
+        }
+    }
+
+    /**
+     * Check whether the service provider advertises bulk support.
+     * @param complianceTestMetaDataHolder
+     * @return
+     */
+    public static boolean isBulkSupported(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+        SCIMServiceProviderConfig scimServiceProviderConfig =
+                complianceTestMetaDataHolder.getScimServiceProviderConfig();
+        try {
+            return scimServiceProviderConfig != null && scimServiceProviderConfig.getBulkSupported();
+        } catch (CharonException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create the given resources.
+     * @param path resource endpoint, eg: /Users
+     * @param definedResources json representations of the resources
+     * @param createdIDs filled with the ids of the created resources, in the order of the defined resources,
+     *                   null where the create failed. Filled before a failure is reported, so that the caller
+     *                   can clean up whatever was created.
+     * @param testName name of the test result reported on failure
+     * @throws ComplianceException
+     * @throws GeneralComplianceException if any of the resources could not be created
+     */
+    public void create(String path, List<String> definedResources, List<String> createdIDs, String testName)
+            throws ComplianceException, GeneralComplianceException {
+        create(path, definedResources, createdIDs, testName, id -> { });
+    }
+
+    /**
+     * Create the given resources, telling the caller about each created resource as soon as the response of
+     * its request is read, eg: to register it for clean up before the rest of the requests are sent.
+     * @param path resource endpoint, eg: /Users
+     * @param definedResources json representations of the resources
+     * @param createdIDs filled with the ids of the created resources, as in the other create
+     * @param testName name of the test result reported on failure
+     * @param createdListener called with the id of each created resource
+     * @throws ComplianceException
+     * @throws GeneralComplianceException if any of the resources could not be created
+     */
+    public void create(String path, List<String> definedResources, List<String> createdIDs, String testName,
+                       Consumer<String> createdListener) throws ComplianceException, GeneralComplianceException {
+        ArrayList<JSONObject> operations = new ArrayList<>();
+        try {
+            for (int i = 0; i < definedResources.size(); i++) {
+                JSONObject operation = new JSONObject();
+                operation.put("method", "POST");
+                operation.put("path", path);
+                operation.put("bulkId", String.valueOf(i));
+                operation.put("data", new JSONObject(definedResources.get(i)));
+                operations.add(operation);
+            }
+        } catch (JSONException e) {
+            throw new ComplianceException("Could not build the bulk request for " + path + ".");
+        }
+
+        HashMap<String, String> locations = new HashMap<>();
+        Wire failure = null;
+        for (List<JSONObject> chunk : chunk(operations)) {
+            BulkResponse bulkResponse = send(chunk);
+            if (bulkResponse.operations == null) {
+                failure = bulkResponse.wire;
+                continue;
+            }
+            for (int i = 0; i < bulkResponse.operations.length(); i++) {
+                JSONObject operation = bulkResponse.operations.optJSONObject(i);
+                if (operation != null && "201".equals(getStatus(operation))
+                        && operation.has("bulkId") && operation.has("location")) {
+                    String location = operation.optString("location");
+                    locations.put(operation.optString("bulkId"), location);
+                    createdListener.accept(location.substring(location.lastIndexOf('/') + 1));
+                } else {
+                    failure = bulkResponse.wire;
+                }
+            }
+        }
+
+        for (int i = 0; i < definedResources.size(); i++) {
+            String location = locations.get(String.valueOf(i));
+            createdIDs.add(location == null ? null : location.substring(location.lastIndexOf('/') + 1));
+        }
+        if (failure != null || locations.size() != definedResources.size()) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                    "Could not create default resources at url " + bulkURL, failure));
+        }
+    }
+
+    /**
+     * Delete the given resources.
+     * @param paths resource paths relative to the base url, eg: /Users/{id}
+     * @return whether all the resources were deleted
+     * @throws ComplianceException
+     */
+    public boolean delete(List<String> paths) throws ComplianceException {
+        ArrayList<JSONObject> operations = new ArrayList<>();
+        try {
+            for (String path : paths) {
+                JSONObject operation = new JSONObject();
+                operation.put("method", "DELETE");
+                operation.put("path", path);
+                operations.add(operation);
+            }
+        } catch (JSONException e) {
+            throw new ComplianceException("Could not build the bulk delete request.");
+        }
+
+        boolean deleted = true;
+        for (List<JSONObject> chunk : chunk(operations)) {
+            BulkResponse bulkResponse = send(chunk);
+            if (bulkResponse.operations == null || bulkResponse.operations.length() != chunk.size()) {
+                deleted = false;
+                continue;
+            }
+            for (int i = 0; i < bulkResponse.operations.length(); i++) {
+                JSONObject operation = bulkResponse.operations.optJSONObject(i);
+                if (operation == null || !"204".equals(getStatus(operation))) {
+                    deleted = false;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Extract the locations of the created resources from a bulk response.
+     * @param response
+     * @return
+     * @throws JSONException
+     */
+    public static ArrayList<String> getLocations(String response) throws JSONException {
+
+        ArrayList<String> locations = new ArrayList<>();
+
+        JSONObject jsonObject = new JSONObject(response);
+        JSONArray jsonarray = jsonObject.optJSONArray("Operations");
+        for (int i = 0; i < jsonarray.length(); i++) {
+            JSONObject innerJsonobject = jsonarray.getJSONObject(i);
+            String location = innerJsonobject.getString("location");
+            locations.add(location);
+        }
+
+        return locations;
+    }
+
+    /**
+     * Split the operations into requests within the advertised limits.
+     * @param operations
+     * @return
+     */
+    private ArrayList<List<JSONObject>> chunk(List<JSONObject> operations) {
+        ArrayList<List<JSONObject>> chunks = new ArrayList<>();
+        ArrayList<JSONObject> chunk = new ArrayList<>();
+        int chunkSize = ComplianceConstants.BulkConstants.ENVELOPE_SIZE;
+        for (JSONObject operation : operations) {
+            // +1 for the separating comma
+            int operationSize = operation.toString().getBytes(StandardCharsets.UTF_8).length + 1;
+            if (!chunk.isEmpty() && (chunk.size() == maxOperations || chunkSize + operationSize > maxPayloadSize)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkSize = ComplianceConstants.BulkConstants.ENVELOPE_SIZE;
+            }
+            chunk.add(operation);
+            chunkSize += operationSize;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Send one bulk request.
+     * @param operations
+     * @return the operations of the response, or null with the wire if the request failed as a whole
+     * @throws ComplianceException
+     */
+    private BulkResponse send(List<JSONObject> operations) throws ComplianceException {
+
+        HttpPost method = new HttpPost(bulkURL);
+
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
+
+        method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
+        method.setHeader("Accept", "application/json");
+        method.setHeader("Content-Type", "application/json");
+
+        HttpResponse response = null;
+        String responseString = "";
+        String headerString = "";
+        String responseStatus = "";
+        ArrayList<String> subTests =  new ArrayList<>();
+        BulkResponse bulkResponse = new BulkResponse();
+        try {
+            JSONObject request = new JSONObject();
+            request.put("schemas", new JSONArray().put(ComplianceConstants.BulkConstants.BULK_REQUEST_SCHEMA));
+            request.put("Operations", new JSONArray(operations));
+            method.setEntity(new ByteArrayEntity(request.toString().getBytes(StandardCharsets.UTF_8)));
+            response = client.execute(method);
+            // Read the response body.
+            if (response.getEntity() != null) {
+                responseString = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            }
+            //get all headers
+            headerString = WireCapture.getHeaderString(response);
+            responseStatus = response.getStatusLine().getStatusCode() + " "
+                    + response.getStatusLine().getReasonPhrase();
+            if (response.getStatusLine().getStatusCode() == 200) {
+                bulkResponse.operations = new JSONObject(responseString).optJSONArray("Operations");
+            }
+        } catch (Exception e) {
+            bulkResponse.operations = null;
+        }
+        bulkResponse.wire = response == null ? null :
+                ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests);
+        return bulkResponse;
+    }
+
+    /**
+     * The status of a bulk response operation, either a plain status code or an object carrying the code.
+     * @param operation
+     * @return
+     */
+    private static String getStatus(JSONObject operation) {
+        JSONObject status = operation.optJSONObject("status");
+        if (status != null) {
+            return status.optString("code");
+        }
+        return operation.optString("status");
+    }
+
+    private static class BulkResponse {
+
+        private JSONArray operations;
+        private Wire wire;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is the append only on-disk record of the resources created on the service providers. A resource is
+ * added when it is created and marked done when it is deleted, so the resources left behind by an
+ * interrupted run can be found and deleted by a later run. The journal is shared by the processes running
+ * compliance tests on the host, eg: the webapp and the command line runner, hence every added resource is
+ * recorded with the process that created it, and only the resources of the processes which are gone are
+ * reaped. A process holds a lock on an owner file next to the journal while it is alive, and every write
+ * to the journal is done under a lock on a lock file next to it. The journal is best effort: if it can not
+ * be written the compliance run goes on without it.
+ */
+public class CleanupJournal {
+
+    private static final String ADDED = "ADD";
+    private static final String DONE = "DONE";
+
+    private static final Path journalPath = Paths.get(System.getProperty(
+            ComplianceConstants.CleanupConstants.JOURNAL_PROPERTY,
+            Paths.get(System.getProperty("java.io.tmpdir"),
+                    ComplianceConstants.CleanupConstants.JOURNAL_FILE_NAME).toString()));
+    // the journal itself is replaced on compaction, so it is locked through a file which stays in place
+    private static final Path lockPath = journalPath.resolveSibling(journalPath.getFileName() + ".lock");
+
+    // process id and start time, which are not reused together
+    private static final String owner = getOwner();
+    // held for the lifetime of the process, and released by the operating system when it is gone
+    private static FileLock ownerLock;
+
+    // resources of the runs in progress in this JVM, which must not be reaped from under them
+    private static final Set<String> live = ConcurrentHashMap.newKeySet();
+
+    static {
+        Path ownerPath = getOwnerPath(owner);
+        try {
+            ownerLock = FileChannel.open(ownerPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE).lock();
+            ownerPath.toFile().deleteOnExit();
+        } catch (IOException e) {
+            // the other processes take the resources of this one for abandoned, see the class comment
+        }
+    }
+
+    /**
+     * Record a created resource.
+     * @param location
+     */
+    public static void added(String location) {
+        live.add(location);
+        append(ADDED + '\t' + owner + '\t' + location + '\n');
+    }
+
+    /**
+     * Record a deleted resource.
+     * @param location
+     */
+    public static void done(String location) {
+        live.remove(location);
+        append(DONE + '\t' + location + '\n');
+    }
+
+    /**
+     * Hand over the resources a finished run could not delete to the later runs.
+     * @param locations
+     */
+    public static void abandoned(Collection<String> locations) {
+        live.removeAll(locations);
+    }
+
+    /**
+     * Get the resources under the given base url which were created but not deleted, leaving out those of
+     * the runs in progress, in this process or in others.
+     * @param baseUrl
+     * @return
+     */
+    public static synchronized List<String> getPending(String baseUrl) {
+        ArrayList<String> pending = new ArrayList<>();
+        // a whole path segment, so that eg: .../scim2 does not take the resources of .../scim2-other
+        String prefix = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        HashMap<String, Boolean> alive = new HashMap<>();
+        Map<String, String> owners;
+        try {
+            owners = locked(CleanupJournal::readPending);
+        } catch (IOException e) {
+            return pending;
+        }
+        for (Map.Entry<String, String> entry : owners.entrySet()) {
+            String location = entry.getKey();
+            if (!location.startsWith(prefix) || live.contains(location)) {
+                continue;
+            }
+            Boolean ownerAlive = alive.get(entry.getValue());
+            if (ownerAlive == null) {
+                ownerAlive = isAlive(entry.getValue());
+                alive.put(entry.getValue(), ownerAlive);
+            }
+            if (!ownerAlive || owner.equals(entry.getValue())) {
+                pending.add(location);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Rewrite the journal with only the resources which are not deleted yet.
+     */
+    public static synchronized void compact() {
+        try {
+            locked(() -> {
+                StringBuilder journal = new StringBuilder();
+                for (Map.Entry<String, String> entry : readPending().entrySet()) {
+                    journal.append(ADDED).append('\t').append(entry.getValue()).append('\t')
+                            .append(entry.getKey()).append('\n');
+                }
+                Path compacted = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+                Files.write(compacted, journal.toString().getBytes(StandardCharsets.UTF_8));
+                Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                return null;
+            });
+        } catch (IOException e) {
+            // the journal keeps growing until it can be compacted
+        }
+    }
+
+    private static synchronized void append(String line) {
+        try {
+            locked(() -> Files.write(journalPath, line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        } catch (IOException e) {
+            // best effort, see the class comment
+        }
+    }
+
+    /*
+     * Run a read or a write of the journal while holding the lock of the journal, which keeps the other
+     * processes from appending to the journal in the middle of a compaction. Callers are synchronized, as
+     * the lock is held on behalf of the whole process.
+     */
+    private static <T> T locked(JournalAction<T> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            return action.run();
+        }
+    }
+
+    /*
+     * location -> owner of the resources which are not deleted yet, in the order they were added.
+     */
+    private static LinkedHashMap<String, String> readPending() throws IOException {
+        LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+        List<String> lines = Files.exists(journalPath) ? Files.readAllLines(journalPath, StandardCharsets.UTF_8)
+                : Collections.<String>emptyList();
+        for (String line : lines) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length < 2) {
+                // a line torn by a crash in the middle of a write
+                continue;
+            }
+            if (ADDED.equals(fields[0])) {
+                // journals written before owners were recorded have none, and their processes are gone
+                pending.put(fields.length == 3 ? fields[2] : fields[1], fields.length == 3 ? fields[1] : "");
+            } else if (DONE.equals(fields[0])) {
+                pending.remove(fields[1]);
+            }
+        }
+        return pending;
+    }
+
+    /*
+     * Check whether a process which added resources is still alive, by whether its owner file is locked.
+     */
+    private static boolean isAlive(String processOwner) {
+        if (owner.equals(processOwner)) {
+            return true;
+        }
+        if (processOwner.isEmpty()) {
+            return false;
+        }
+        Path ownerPath = getOwnerPath(processOwner);
+        if (!Files.exists(ownerPath)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(ownerPath, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+        } catch (OverlappingFileLockException e) {
+            // locked by another class loader of this process
+            return true;
+        } catch (IOException e) {
+            // not known, hence left alone
+            return true;
+        }
+        try {
+            Files.deleteIfExists(ownerPath);
+        } catch (IOException e) {
+            // left for the next run
+        }
+        return false;
+    }
+
+    private static Path getOwnerPath(String processOwner) {
+        return journalPath.resolveSibling(journalPath.getFileName() + "." + processOwner + ".owner");
+    }
+
+    private static String getOwner() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        // the name is pid@host
+        String name = runtime.getName();
+        int separator = name.indexOf('@');
+        return (separator > 0 ? name.substring(0, separator) : name.replaceAll("[^A-Za-z0-9]", ""))
+                + "-" + runtime.getStartTime();
+    }
+
+    /**
+     * A read or a write of the journal.
+     * @param <T>
+     */
+    private interface JournalAction<T> {
+        T run() throws IOException;
+    }
+}
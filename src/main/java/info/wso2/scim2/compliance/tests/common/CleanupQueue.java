@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.httpclient.HTTPClient;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This deletes the resources created by the test cases of a compliance run off their critical path. Resources
+ * are registered as soon as they are created, and recorded in the CleanupJournal. Deletes are sent through the
+ * asynchronous client and do not block the test cases. Whatever is still registered at the end of the run
+ * is deleted by drain(), and whatever could not be deleted stays in the journal for a later run to reap.
+ */
+public class CleanupQueue {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private Set<String> registered = ConcurrentHashMap.newKeySet();
+    private ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     */
+    public CleanupQueue(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+    }
+
+    /**
+     * Register a created resource, to be deleted by the end of the run at the latest.
+     * @param location
+     */
+    public void register(String location) {
+        if (registered.add(location)) {
+            CleanupJournal.added(location);
+        }
+    }
+
+    /**
+     * Record that the given resources were deleted by other means.
+     * @param locations
+     */
+    public void completed(Collection<String> locations) {
+        for (String location : locations) {
+            if (registered.remove(location)) {
+                CleanupJournal.done(location);
+            }
+        }
+    }
+
+    /**
+     * Delete a resource without waiting for the response.
+     * @param location
+     * @throws ComplianceException
+     */
+    public void delete(final String location) throws ComplianceException {
+        register(location);
+        final CompletableFuture<Boolean> deletion = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(location, deletion) != null) {
+            return;
+        }
+        HttpDelete method = new HttpDelete(location);
+        method = (HttpDelete) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
+        method.setHeader("Accept", "application/json");
+        CompletableFuture<HttpResponse> response;
+        try {
+            response = HTTPClient.executeAsync(complianceTestMetaDataHolder, method);
+        } catch (ComplianceException e) {
+            inFlight.remove(location, deletion);
+            deletion.complete(false);
+            throw e;
+        }
+        response.whenComplete((HttpResponse httpResponse, Throwable throwable) -> {
+            // a resource which is already gone, eg: by a delete test case, is as good as deleted
+            boolean deleted = httpResponse != null && (httpResponse.getStatusLine().getStatusCode() == 204
+                    || httpResponse.getStatusLine().getStatusCode() == 404);
+            if (deleted && registered.remove(location)) {
+                CleanupJournal.done(location);
+            }
+            inFlight.remove(location, deletion);
+            deletion.complete(deleted);
+        });
+    }
+
+    /**
+     * Delete a resource and wait for the response, eg: to reuse its name straight away.
+     * @param location
+     * @return whether the resource was deleted
+     * @throws ComplianceException
+     */
+    public boolean deleteAndWait(String location) throws ComplianceException {
+        delete(location);
+        CompletableFuture<Boolean> deletion = inFlight.get(location);
+        if (deletion != null) {
+            try {
+                deletion.join();
+            } catch (CompletionException | CancellationException e) {
+                // the resource stays registered
+            }
+        }
+        return !registered.contains(location);
+    }
+
+    /**
+     * Get the registered resources which are not deleted yet.
+     * @return
+     */
+    public List<String> getRemaining() {
+        return new ArrayList<>(registered);
+    }
+
+    /**
+     * Delete the resources left behind by earlier runs against the same service provider.
+     * @throws ComplianceException
+     */
+    public void reap() throws ComplianceException {
+        for (String location : CleanupJournal.getPending(complianceTestMetaDataHolder.getUrl())) {
+            delete(location);
+        }
+    }
+
+    /**
+     * Wait for the deletes sent so far.
+     */
+    public void awaitInFlight() {
+        for (CompletableFuture<Boolean> deletion : new ArrayList<>(inFlight.values())) {
+            try {
+                deletion.join();
+            } catch (CompletionException | CancellationException e) {
+                // the resource stays registered
+            }
+        }
+    }
+
+    /**
+     * Delete every registered resource and wait for the deletes.
+     * @return whether all the registered resources were deleted
+     * @throws ComplianceException
+     */
+    public boolean drain() throws ComplianceException {
+        for (String location : new ArrayList<>(registered)) {
+            delete(location);
+        }
+        awaitInFlight();
+        CleanupJournal.abandoned(registered);
+        CleanupJournal.compact();
+        return registered.isEmpty();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * This generates random SCIM filter expressions over the users of a SeededDataset, from a small grammar:
+ *
+ *   filter     = comparison | comparison "and" comparison | comparison "or" comparison | valuePath
+ *   comparison = attrPath ("eq" | "co" | "sw" | "gt") value | attrPath "pr"
+ *   valuePath  = "emails[type eq" type "and value" ("eq" | "co" | "sw") value "]"
+ *   attrPath   = "userName" | "name.familyName" | "nickName" | "emails.value"
+ *
+ * The values are taken from randomly picked users, or are prefixes of their userNames, so that a filter
+ * selects from one to a few hundred users. Each expression also evaluates itself against the data set, which
+ * gives the number of users the service provider has to return. The pr and gt comparisons also select users
+ * outside the data set, hence they are narrowed to it with userName sw.
+ */
+public class FilterExpressionGenerator {
+
+    // the kinds of expression generated, each reported on its own
+    public static final List<String> OPERATORS = Collections.unmodifiableList(
+            Arrays.asList("eq", "co", "sw", "gt", "pr", "and", "or", "emails[]"));
+
+    private SeededDataset seededDataset;
+    private Random random;
+
+    /**
+     * Initialize.
+     * @param seededDataset
+     * @param seed the same seed generates the same expressions
+     */
+    public FilterExpressionGenerator(SeededDataset seededDataset, long seed) {
+        this.seededDataset = seededDataset;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generate an expression.
+     * @param operator one of OPERATORS
+     * @param size number of users of the data set to pick the values from
+     * @return
+     */
+    public Expression generate(String operator, int size) {
+        switch (operator) {
+            case "eq":
+            case "co":
+            case "sw":
+                return comparison(operator, size);
+            case "gt":
+            case "pr":
+                return narrow(comparison(operator, size));
+            case "and":
+            case "or":
+                Expression left = comparison(pick("eq", "co", "sw"), size);
+                Expression right = comparison(pick("eq", "co", "sw"), size);
+                return new Expression(operator, left.filter + " " + operator + " " + right.filter,
+                        "and".equals(operator) ? left.matcher.and(right.matcher) : left.matcher.or(right.matcher));
+            case "emails[]":
+                return valuePath(size);
+            default:
+                throw new IllegalArgumentException("Unknown filter operator " + operator);
+        }
+    }
+
+    private Expression comparison(String operator, int size) {
+        int index = random.nextInt(size);
+        String attribute;
+        IntFunction<List<String>> values;
+        if ("pr".equals(operator)) {
+            attribute = "nickName";
+            values = this::getNickNames;
+        } else if ("gt".equals(operator)) {
+            attribute = pick("userName", "name.familyName");
+            values = getValues(attribute);
+        } else {
+            attribute = pick("userName", "name.familyName", "nickName", "emails.value");
+            values = getValues(attribute);
+        }
+        if ("pr".equals(operator)) {
+            return new Expression(operator, attribute + " pr", i -> !values.apply(i).isEmpty());
+        }
+        if ("nickName".equals(attribute)) {
+            // only the users with an even index have one
+            index -= index % 2;
+        }
+        String value = "eq".equals(operator) || "gt".equals(operator)
+                ? pick(values.apply(index).toArray(new String[0])) : getUserNamePrefix(index);
+        return new Expression(operator, attribute + " " + operator + " \"" + value + "\"",
+                i -> matchesAny(values.apply(i), operator, value));
+    }
+
+    private Expression valuePath(int size) {
+        int index = random.nextInt(size);
+        String type = pick("work", "home");
+        String operator = pick("eq", "co", "sw");
+        String value = "eq".equals(operator)
+                ? ("work".equals(type) ? seededDataset.getWorkEmail(index) : seededDataset.getHomeEmail(index))
+                : getUserNamePrefix(index);
+        IntFunction<List<String>> values = "work".equals(type)
+                ? i -> Collections.singletonList(seededDataset.getWorkEmail(i))
+                : i -> Collections.singletonList(seededDataset.getHomeEmail(i));
+        return new Expression("emails[]", "emails[type eq \"" + type + "\" and value " + operator + " \"" + value
+                + "\"]", i -> matchesAny(values.apply(i), operator, value));
+    }
+
+    private Expression narrow(Expression expression) {
+        String prefix = seededDataset.getPrefix() + "-";
+        return new Expression(expression.operator, expression.filter + " and userName sw \"" + prefix + "\"",
+                expression.matcher);
+    }
+
+    /*
+     * The userName of the user with the given index, cut after 3 to 5 of its 6 digits, which is shared by
+     * up to 1000, 100 or 10 users.
+     */
+    private String getUserNamePrefix(int index) {
+        String userName = seededDataset.getUserName(index);
+        return userName.substring(0, userName.length() - 1 - random.nextInt(3));
+    }
+
+    private IntFunction<List<String>> getValues(String attribute) {
+        switch (attribute) {
+            case "userName":
+                return i -> Collections.singletonList(seededDataset.getUserName(i));
+            case "name.familyName":
+                return i -> Collections.singletonList(seededDataset.getFamilyName(i));
+            case "nickName":
+                return this::getNickNames;
+            default:
+                return i -> Arrays.asList(seededDataset.getWorkEmail(i), seededDataset.getHomeEmail(i));
+        }
+    }
+
+    private List<String> getNickNames(int index) {
+        String nickName = seededDataset.getNickName(index);
+        return nickName == null ? Collections.<String>emptyList() : Collections.singletonList(nickName);
+    }
+
+    private static boolean matchesAny(List<String> values, String operator, String value) {
+        for (String attributeValue : values) {
+            switch (operator) {
+                case "eq":
+                    if (attributeValue.equals(value)) {
+                        return true;
+                    }
+                    break;
+                case "co":
+                    if (attributeValue.contains(value)) {
+                        return true;
+                    }
+                    break;
+                case "sw":
+                    if (attributeValue.startsWith(value)) {
+                        return true;
+                    }
+                    break;
+                case "gt":
+                    if (attributeValue.compareTo(value) > 0) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    private String pick(String... choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+
+    /**
+     * A filter expression, and the users of the data set it selects.
+     */
+    public class Expression {
+
+        private final String operator;
+        private final String filter;
+        private final IntPredicate matcher;
+
+        private Expression(String operator, String filter, IntPredicate matcher) {
+            this.operator = operator;
+            this.filter = filter;
+            this.matcher = matcher;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public String getFilter() {
+            return filter;
+        }
+
+        /**
+         * Count the created users the expression selects.
+         * @param size number of users of the data set
+         * @return
+         */
+        public int count(int size) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (seededDataset.isCreated(i) && matcher.test(i)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
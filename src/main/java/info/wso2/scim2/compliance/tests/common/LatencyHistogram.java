@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This records latencies, in microseconds, in the log-linear buckets of an HdrHistogram. Each power of two
+ * range is split into 128 linear buckets, so a recorded value is kept to within 1% whatever its magnitude,
+ * and the memory used is fixed. Values are recorded without locking, from any number of threads.
+ */
+public class LatencyHistogram {
+
+    // linear buckets in the lower half of each power of two range
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * 2;
+    // one hour, longer latencies are recorded as one hour
+    private static final long HIGHEST_TRACKABLE_VALUE = 3600L * 1000 * 1000;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public LatencyHistogram() {
+        int bucketCount = 1;
+        long smallestUntrackableValue = SUB_BUCKET_COUNT;
+        while (smallestUntrackableValue <= HIGHEST_TRACKABLE_VALUE) {
+            smallestUntrackableValue <<= 1;
+            bucketCount++;
+        }
+        counts = new AtomicLongArray((bucketCount + 1) * SUB_BUCKET_HALF_COUNT);
+    }
+
+    /**
+     * Record a latency.
+     * @param micros
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_VALUE);
+        counts.incrementAndGet(getIndex(value));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(value);
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Get the number of recorded latencies.
+     * @return
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Get the highest recorded latency.
+     * @return
+     */
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * Get the mean of the recorded latencies.
+     * @return
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * Get the latency at or below which the given percentage of the recorded latencies fall.
+     * @param percentile eg: 99.0
+     * @return the highest value equivalent to the bucket of that latency, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= countAtPercentile) {
+                return Math.min(getHighestEquivalentValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /*
+     * The first bucket holds 0 to SUB_BUCKET_COUNT - 1 one by one, each of the next ones holds the upper half
+     * of the following power of two range at twice the unit of the one before.
+     */
+    private static int getIndex(long value) {
+        int bucketIndex = Math.max(0, 64 - Long.numberOfLeadingZeros(value | (SUB_BUCKET_COUNT - 1))
+                - (SUB_BUCKET_HALF_COUNT_MAGNITUDE + 1));
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return (bucketIndex + 1) * SUB_BUCKET_HALF_COUNT + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+    }
+
+    private static long getHighestEquivalentValue(int index) {
+        int bucketIndex = Math.max(0, index / SUB_BUCKET_HALF_COUNT - 1);
+        int subBucketIndex = index - bucketIndex * SUB_BUCKET_HALF_COUNT;
+        return (((long) subBucketIndex + 1) << bucketIndex) - 1;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Violation;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.json.JSONException;
+import org.wso2.charon3.core.encoder.JSONDecoder;
+import org.wso2.charon3.core.exceptions.BadRequestException;
+import org.wso2.charon3.core.exceptions.CharonException;
+import org.wso2.charon3.core.exceptions.InternalErrorException;
+import org.wso2.charon3.core.objects.AbstractSCIMObject;
+import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * This decodes and validates the resources of a list response. Large pages are split across a fork-join
+ * pool shared by all the compliance runs, small ones are handled on the calling thread. Either way the
+ * outcome is the one of handling the resources one after the other: the resources are returned in the
+ * order of the response, and a failure is reported for the first failing resource with the sub tests it
+ * would have seen. In the collect-all validation mode every resource is validated, and the violations of all
+ * the failing resources are reported together, in the order of the response.
+ */
+public class ListResourceValidator {
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Decode and validate the Resources of a list response.
+     * @param responseString the list response body
+     * @param schema
+     * @param resourceFactory creates the object each resource is decoded into
+     * @param testName name of the test result reported on failure
+     * @param method
+     * @param headerString
+     * @param responseStatus
+     * @param subTests
+     * @return the decoded resources, in the order of the response
+     * @throws JSONException if the response is not a list response
+     * @throws GeneralComplianceException if a resource could not be decoded or is not valid
+     * @throws ComplianceException
+     */
+    public static <T extends AbstractSCIMObject> ArrayList<T> decodeAndValidate(String responseString,
+                                                                            SCIMResourceTypeSchema schema,
+                                                                            Supplier<T> resourceFactory,
+                                                                            String testName,
+                                                                            HttpRequestBase method,
+                                                                            String headerString,
+                                                                            String responseStatus,
+                                                                            ArrayList<String> subTests)
+            throws JSONException, GeneralComplianceException, ComplianceException {
+
+        // only the bounds of the resources are kept, each is copied out of the response when it is decoded
+        ArrayList<int[]> resources = new ArrayList<>();
+        ListResponseReader listResponseReader = new ListResponseReader(responseString);
+        while (listResponseReader.hasNext()) {
+            resources.add(listResponseReader.nextBounds());
+        }
+
+        Validation<T> validation = new Validation<>(resources, schema, resourceFactory, testName, method,
+                responseString, headerString, responseStatus, subTests);
+        if (resources.size() < ComplianceConstants.ValidationConstants.PARALLEL_THRESHOLD) {
+            validation.run(0, resources.size());
+        } else {
+            pool.invoke(new ValidationTask<>(validation, 0, resources.size()));
+        }
+
+        ArrayList<T> decoded = new ArrayList<>(resources.size());
+        ArrayList<Violation> violations = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            if (validation.failures[i] != null) {
+                if (!validation.collectAll || !(validation.failures[i] instanceof GeneralComplianceException)) {
+                    rethrow(validation.failures[i]);
+                }
+                addViolations(violations, i, ((GeneralComplianceException) validation.failures[i]).getResult());
+            }
+            decoded.add(validation.decoded.get(i));
+        }
+        if (!resources.isEmpty()) {
+            ResponseValidateTests.addValidationSubTests(subTests);
+        }
+        if (!violations.isEmpty()) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, violations.get(0).getTest(),
+                    violations, ComplianceUtils.getWire(method, responseString, headerString, responseStatus,
+                    subTests)));
+        }
+        return decoded;
+    }
+
+    /*
+     * Add the violations of a failing resource, marked with its index in the response.
+     */
+    private static void addViolations(List<Violation> violations, int index, TestResult result) {
+        if (result.getViolations() == null) {
+            violations.add(new Violation(result.getName(), "Resource " + index + " : " + result.getMessage()));
+            return;
+        }
+        for (Violation violation : result.getViolations()) {
+            violations.add(new Violation(violation.getTest(), "Resource " + index + " : " + violation.getMessage()));
+        }
+    }
+
+    private static void rethrow(Exception failure) throws GeneralComplianceException, ComplianceException {
+        if (failure instanceof GeneralComplianceException) {
+            throw (GeneralComplianceException) failure;
+        }
+        throw (ComplianceException) failure;
+    }
+
+    /**
+     * The state shared by the tasks validating the resources of one response.
+     */
+    private static class Validation<T extends AbstractSCIMObject> {
+
+        private final List<int[]> resources;
+        private final SCIMResourceTypeSchema schema;
+        private final Supplier<T> resourceFactory;
+        private final String testName;
+        private final HttpRequestBase method;
+        private final String responseString;
+        private final String headerString;
+        private final String responseStatus;
+        private final ArrayList<String> subTests;
+        private final ArrayList<T> decoded;
+        private final Exception[] failures;
+        // otherwise resources after the first failure need not be handled
+        private final boolean collectAll = ViolationCollector.isCollectAll();
+        private final AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+
+        private Validation(List<int[]> resources, SCIMResourceTypeSchema schema, Supplier<T> resourceFactory,
+                           String testName, HttpRequestBase method, String responseString, String headerString,
+                           String responseStatus, ArrayList<String> subTests) {
+            this.resources = resources;
+            this.schema = schema;
+            this.resourceFactory = resourceFactory;
+            this.testName = testName;
+            this.method = method;
+            this.responseString = responseString;
+            this.headerString = headerString;
+            this.responseStatus = responseStatus;
+            this.subTests = subTests;
+            this.decoded = new ArrayList<>(resources.size());
+            for (int i = 0; i < resources.size(); i++) {
+                decoded.add(null);
+            }
+            this.failures = new Exception[resources.size()];
+        }
+
+        private void run(int from, int to) {
+            JSONDecoder jsonDecoder = new JSONDecoder();
+            for (int i = from; i < to && (collectAll || i < firstFailure.get()); i++) {
+                try {
+                    decoded.set(i, validate(jsonDecoder, i));
+                } catch (GeneralComplianceException | ComplianceException e) {
+                    failures[i] = e;
+                    firstFailure.accumulateAndGet(i, Math::min);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T validate(JSONDecoder jsonDecoder, int index) throws GeneralComplianceException, ComplianceException {
+            // the sub tests as they would be when handling the resources one after the other
+            ArrayList<String> resourceSubTests = new ArrayList<>(subTests);
+            if (index > 0) {
+                ResponseValidateTests.addValidationSubTests(resourceSubTests);
+            }
+            T resource;
+            try {
+                int[] bounds = resources.get(index);
+                resource = (T) jsonDecoder.decodeResource(responseString.substring(bounds[0], bounds[1]), schema,
+                        resourceFactory.get());
+            } catch (BadRequestException | CharonException | InternalErrorException e) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "Could not decode the server response",
+                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus,
+                                resourceSubTests)));
+            }
+            try {
+                ResponseValidateTests.runValidateTests(resource, schema,
+                        null, null, method,
+                        responseString, headerString, responseStatus, resourceSubTests);
+
+            } catch (BadRequestException | CharonException e) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "Response Validation Error",
+                        ComplianceUtils.getWire(method, responseString, headerString,
+                                responseStatus, resourceSubTests)));
+            }
+            return resource;
+        }
+    }
+
+    /**
+     * Splits a range of resources until it is small enough to be validated by one worker.
+     */
+    private static class ValidationTask<T extends AbstractSCIMObject> extends RecursiveAction {
+
+        private final Validation<T> validation;
+        private final int from;
+        private final int to;
+
+        private ValidationTask(Validation<T> validation, int from, int to) {
+            this.validation = validation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ComplianceConstants.ValidationConstants.PARALLEL_CHUNK_SIZE
+                    || (!validation.collectAll && from >= validation.firstFailure.get())) {
+                validation.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidationTask<>(validation, from, middle), new ValidationTask<>(validation, middle, to));
+        }
+    }
+}
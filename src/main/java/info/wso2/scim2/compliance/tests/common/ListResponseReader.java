@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import org.json.JSONException;
+
+/**
+ * This walks the Resources of a list response one element at a time. The response is only scanned for the
+ * bounds of the elements, without building any json objects, so each resource is parsed once, by the
+ * decoder it is handed to.
+ */
+public class ListResponseReader {
+
+    private static final String RESOURCES = "Resources";
+
+    private final String response;
+    private int position;
+    private boolean first = true;
+    // positioned at the start of an element which was not read yet
+    private boolean ready;
+    private boolean done;
+
+    /**
+     * Initialize, positioning the reader at the first element of the Resources.
+     * @param response the list response body
+     * @throws JSONException if the response is not an object with a Resources array
+     */
+    public ListResponseReader(String response) throws JSONException {
+        this.response = response;
+        skipWhitespace();
+        expect('{');
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (RESOURCES.equals(key)) {
+                expect('[');
+                return;
+            }
+            skipValue();
+            skipWhitespace();
+            if (peek() != ',') {
+                throw syntaxError("JSONObject[\"" + RESOURCES + "\"] not found.");
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Check whether there is another element.
+     * @return
+     * @throws JSONException
+     */
+    public boolean hasNext() throws JSONException {
+        if (ready) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        skipWhitespace();
+        if (peek() == ']') {
+            done = true;
+            return false;
+        }
+        if (!first) {
+            expect(',');
+            skipWhitespace();
+        }
+        ready = true;
+        return true;
+    }
+
+    /**
+     * Get the json of the next element.
+     * @return
+     * @throws JSONException if the element is not an object
+     */
+    public String next() throws JSONException {
+        int[] bounds = nextBounds();
+        return response.substring(bounds[0], bounds[1]);
+    }
+
+    /**
+     * Skip the next element, without copying it out of the response.
+     * @return the start and the end index of the element in the response
+     * @throws JSONException if the element is not an object
+     */
+    public int[] nextBounds() throws JSONException {
+        if (!hasNext()) {
+            throw syntaxError("No more resources.");
+        }
+        if (peek() != '{') {
+            throw syntaxError("A JSONObject text must begin with '{'");
+        }
+        int start = position;
+        skipValue();
+        first = false;
+        ready = false;
+        return new int[] {start, position};
+    }
+
+    private void skipValue() throws JSONException {
+        char c = peek();
+        if (c == '"') {
+            readString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        } else {
+            // a number or a literal
+            while (position < response.length() && ",}] \t\r\n".indexOf(response.charAt(position)) < 0) {
+                position++;
+            }
+        }
+    }
+
+    private String readString() throws JSONException {
+        expect('"');
+        StringBuilder value = null;
+        int start = position;
+        while (true) {
+            char c = peek();
+            position++;
+            if (c == '"') {
+                return value == null ? response.substring(start, position - 1) : value.toString();
+            }
+            if (c == '\\') {
+                if (value == null) {
+                    value = new StringBuilder(response.substring(start, position - 1));
+                }
+                char escaped = peek();
+                position++;
+                switch (escaped) {
+                    case 'b': value.append('\b'); break;
+                    case 't': value.append('\t'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'u':
+                        if (position + 4 > response.length()) {
+                            throw syntaxError("Illegal escape.");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(response.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw syntaxError("Illegal escape.");
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            } else if (value != null) {
+                value.append(c);
+            }
+        }
+    }
+
+    private void expect(char expected) throws JSONException {
+        if (peek() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    private char peek() throws JSONException {
+        if (position >= response.length()) {
+            throw syntaxError("Unterminated list response.");
+        }
+        return response.charAt(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < response.length() && Character.isWhitespace(response.charAt(position))) {
+            position++;
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + position);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.httpclient.HTTPClient;
+import info.wso2.scim2.compliance.httpclient.TargetRateLimiter;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.protocol.WireCapture;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import info.wso2.scim2.compliance.utils.ExecutorFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This sends the same kind of request a given number of times, from a fixed number of concurrent workers,
+ * and measures the latency of each request and the throughput of them all. The latency runs from sending
+ * the request until its response body is read. The wait for the rate limit of the host is left out of the
+ * latency, but not out of the throughput. The concurrency is capped at the connections per route of the
+ * run, so that no request waits for a pooled connection.
+ */
+public class LoadRunner {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private int concurrency;
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     * @param concurrency number of requests in flight at the same time
+     */
+    public LoadRunner(ComplianceTestMetaDataHolder complianceTestMetaDataHolder, int concurrency) {
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+        this.concurrency = Math.max(1, Math.min(concurrency,
+                complianceTestMetaDataHolder.getMaxConnectionsPerRoute()));
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Send the requests of an operation and wait for all of them.
+     * @param name name of the test result, eg: Create Users Performance
+     * @param operations number of requests to send
+     * @param operation
+     * @return
+     * @throws ComplianceException
+     */
+    public Measurement run(String name, final int operations, final Operation operation)
+            throws ComplianceException {
+        final HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
+        final Measurement measurement = new Measurement(name, concurrency);
+        final AtomicInteger next = new AtomicInteger();
+
+        ExecutorService executorService = ExecutorFactory.newExecutor("compliance-load-", concurrency);
+        List<Future<Void>> workers = new ArrayList<>();
+        long startedAt = System.nanoTime();
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executorService.submit(new Callable<Void>() {
+                    public Void call() throws ComplianceException, InterruptedException {
+                        for (int index = next.getAndIncrement(); index < operations;
+                             index = next.getAndIncrement()) {
+                            send(client, operation, index, measurement);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof ComplianceException ? (ComplianceException) e.getCause()
+                    : new ComplianceException("Error occurred in " + name + ".");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ComplianceException("Interrupted while running " + name + ".");
+        } finally {
+            executorService.shutdownNow();
+        }
+        measurement.elapsedNanos = System.nanoTime() - startedAt;
+        return measurement;
+    }
+
+    /**
+     * Send a single request and measure its latency, the same way as the requests of an operation.
+     * @param method
+     * @return
+     * @throws ComplianceException
+     * @throws IOException
+     */
+    public Response send(HttpRequestBase method) throws ComplianceException, IOException {
+        return send(HTTPClient.getHttpClient(complianceTestMetaDataHolder),
+                HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method));
+    }
+
+    private void send(HttpClient client, Operation operation, int index, Measurement measurement)
+            throws ComplianceException, InterruptedException {
+        HttpRequestBase method = HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder,
+                operation.newRequest(index));
+        measurement.setSampleRequest(method);
+        measurement.requests.incrementAndGet();
+        try {
+            Response response = send(client, method);
+            measurement.histogram.record(response.getLatency());
+            measurement.countStatus(String.valueOf(response.getStatusCode()));
+            if (!operation.completed(index, response.getStatusCode(), response.getResponseString())) {
+                measurement.errors.incrementAndGet();
+            }
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            measurement.countStatus(e.getClass().getSimpleName());
+            measurement.errors.incrementAndGet();
+        }
+    }
+
+    private static Response send(HttpClient client, HttpRequestBase method) throws IOException {
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(TargetRateLimiter.ACQUIRED, Boolean.TRUE);
+        try {
+            TargetRateLimiter.acquire(method.getURI());
+            long sentAt = System.nanoTime();
+            HttpResponse response = client.execute(method, context);
+            String responseString = response.getEntity() == null ? ""
+                    : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            return new Response(response, responseString, (System.nanoTime() - sentAt) / 1000);
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * A response and how long it took.
+     */
+    public static class Response {
+
+        private final int statusCode;
+        private final String responseStatus;
+        private final String headerString;
+        private final String responseString;
+        private final long latency;
+
+        private Response(HttpResponse response, String responseString, long latency) {
+            this.statusCode = response.getStatusLine().getStatusCode();
+            this.responseStatus = statusCode + " " + response.getStatusLine().getReasonPhrase();
+            this.headerString = WireCapture.getHeaderString(response);
+            this.responseString = responseString;
+            this.latency = latency;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getResponseStatus() {
+            return responseStatus;
+        }
+
+        public String getHeaderString() {
+            return headerString;
+        }
+
+        public String getResponseString() {
+            return responseString;
+        }
+
+        /**
+         * Get the latency in microseconds.
+         * @return
+         */
+        public long getLatency() {
+            return latency;
+        }
+    }
+
+    /**
+     * A kind of request sent by the load runner.
+     */
+    public interface Operation {
+
+        /**
+         * Build the request with the given index, the authorization header is added by the load runner.
+         * @param index from 0 to the number of requests - 1
+         * @return
+         * @throws ComplianceException
+         */
+        HttpRequestBase newRequest(int index) throws ComplianceException;
+
+        /**
+         * Check the response to the request with the given index. Called from the worker threads.
+         * @param index
+         * @param statusCode
+         * @param responseString
+         * @return whether the request succeeded
+         */
+        boolean completed(int index, int statusCode, String responseString);
+    }
+
+    /**
+     * The latencies and the outcome of the requests of an operation.
+     */
+    public static class Measurement {
+
+        private static final double[] PERCENTILES = {50, 75, 90, 95, 99, 99.9};
+
+        private final String name;
+        private final int concurrency;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        // status code, or exception, -> count
+        private final TreeMap<String, Integer> statusCounts = new TreeMap<>();
+        private volatile String sampleRequest;
+        private long elapsedNanos;
+
+        private Measurement(String name, int concurrency) {
+            this.name = name;
+            this.concurrency = concurrency;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public int getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * Get the requests sent per second.
+         * @return
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : requests.get() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Summarize the measurement as a test result, which fails if any of the requests failed.
+         * @return
+         */
+        public TestResult toTestResult() {
+            String message = String.format(
+                    "%d requests, %d errors, %.1f requests/s, p50 %s, p95 %s, p99 %s, max %s",
+                    requests.get(), errors.get(), getThroughput(),
+                    toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(95)),
+                    toMillis(histogram.getValueAtPercentile(99)), toMillis(histogram.getMaxValue()));
+            // the throughput is bounded by the rate limit of the tool, which is not a limit of the server
+            double rateLimit = TargetRateLimiter.getRequestsPerSecond();
+            if (rateLimit > 0) {
+                message += String.format(", rate limited to %.1f requests/s by %s", rateLimit,
+                        ComplianceConstants.RateLimitConstants.REQUESTS_PER_SECOND_PROPERTY);
+            }
+
+            StringBuilder responses = new StringBuilder();
+            synchronized (statusCounts) {
+                for (Map.Entry<String, Integer> statusCount : statusCounts.entrySet()) {
+                    responses.append(statusCount.getKey()).append(" : ").append(statusCount.getValue()).append("\n");
+                }
+            }
+            StringBuilder latencies = new StringBuilder();
+            latencies.append("Concurrency : ").append(concurrency).append("\n");
+            latencies.append("Rate limit : ").append(rateLimit > 0 ? String.format("%.1f requests/s", rateLimit)
+                    : "none").append("\n");
+            latencies.append(String.format("Elapsed : %.1f s%n", elapsedNanos / 1e9));
+            latencies.append("Mean : ").append(toMillis((long) histogram.getMean())).append("\n");
+            for (double percentile : PERCENTILES) {
+                latencies.append("p").append(percentile % 1 == 0 ? String.valueOf((int) percentile)
+                        : String.valueOf(percentile)).append(" : ")
+                        .append(toMillis(histogram.getValueAtPercentile(percentile))).append("\n");
+            }
+            latencies.append("Max : ").append(toMillis(histogram.getMaxValue()));
+
+            return new TestResult(errors.get() == 0 && requests.get() > 0 ? TestResult.SUCCESS
+                    : TestResult.ERROR, name, message,
+                    new Wire(sampleRequest == null ? "" : sampleRequest, responses.toString(), latencies.toString()));
+        }
+
+        private void setSampleRequest(HttpRequestBase method) {
+            if (sampleRequest == null) {
+                sampleRequest = method.getRequestLine().toString();
+            }
+        }
+
+        private void countStatus(String status) {
+            synchronized (statusCounts) {
+                Integer count = statusCounts.get(status);
+                statusCounts.put(status, count == null ? 1 : count + 1);
+            }
+        }
+
+        private static String toMillis(long micros) {
+            return String.format("%.1f ms", micros / 1000.0);
+        }
+    }
+}
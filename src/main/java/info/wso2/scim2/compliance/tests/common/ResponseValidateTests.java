@@ -15,10 +15,8 @@
  */
 package info.wso2.scim2.compliance.tests.common;
 
-import info.wso2.scim2.compliance.entities.TestResult;
 import info.wso2.scim2.compliance.exception.ComplianceException;
 import info.wso2.scim2.compliance.exception.GeneralComplianceException;
-import info.wso2.scim2.compliance.protocol.ComplianceUtils;
 import info.wso2.scim2.compliance.utils.ComplianceConstants;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.wso2.charon3.core.attributes.AbstractAttribute;
@@ -29,13 +27,10 @@ import org.wso2.charon3.core.exceptions.BadRequestException;
 import org.wso2.charon3.core.exceptions.CharonException;
 import org.wso2.charon3.core.objects.AbstractSCIMObject;
 import org.wso2.charon3.core.objects.SCIMObject;
-import org.wso2.charon3.core.schema.AttributeSchema;
-import org.wso2.charon3.core.schema.SCIMAttributeSchema;
 import org.wso2.charon3.core.schema.SCIMDefinitions;
 import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -70,62 +65,75 @@ public class ResponseValidateTests {
                                         String responseStatus,
                                         ArrayList<String> subTests)
             throws BadRequestException, CharonException, GeneralComplianceException, ComplianceException {
+        ValidationPlan plan = ValidationPlan.getPlan(schema, requestedAttributes, requestedExcludingAttributes);
+        ViolationCollector violations = new ViolationCollector(method, responseString, headerString,
+                responseStatus, subTests);
+
         //Check for required attributes
-        if (!subTests.contains(ComplianceConstants.TestConstants.REQUIRED_ATTRIBUTE_TEST)) {
-            subTests.add(ComplianceConstants.TestConstants.REQUIRED_ATTRIBUTE_TEST);
-        }
-        validateSCIMObjectForRequiredAttributes(scimObject, schema,
-                method, responseString, headerString, responseStatus, subTests);
+        addSubTest(subTests, ComplianceConstants.TestConstants.REQUIRED_ATTRIBUTE_TEST);
+        validateSCIMObjectForRequiredAttributes(scimObject, plan, violations);
 
         //validate schema list
-        if (!subTests.contains(ComplianceConstants.TestConstants.SCHEMA_LIST_TEST)) {
-            subTests.add(ComplianceConstants.TestConstants.SCHEMA_LIST_TEST);
-        }
-        validateSchemaList(scimObject, schema, method, responseString, headerString, responseStatus, subTests);
+        addSubTest(subTests, ComplianceConstants.TestConstants.SCHEMA_LIST_TEST);
+        validateSchemaList(scimObject, plan, violations);
 
-        if (!subTests.contains(ComplianceConstants.TestConstants.ATTRIBUTE_MUTABILITY_TEST)) {
-            subTests.add(ComplianceConstants.TestConstants.ATTRIBUTE_MUTABILITY_TEST);
-        }
-        validateReturnedAttributes((AbstractSCIMObject) scimObject, requestedAttributes,
-                requestedExcludingAttributes, method,
-                responseString, headerString, responseStatus, subTests);
+        addSubTest(subTests, ComplianceConstants.TestConstants.ATTRIBUTE_MUTABILITY_TEST);
+        validateReturnedAttributes((AbstractSCIMObject) scimObject, plan, violations);
 
+        //in the collect-all mode, fail with everything found above
+        violations.complete();
+    }
+
+    /**
+     * Add the sub tests of a successful validation, as runValidateTests does.
+     * @param subTests
+     */
+    public static void addValidationSubTests(ArrayList<String> subTests) {
+        addSubTest(subTests, ComplianceConstants.TestConstants.REQUIRED_ATTRIBUTE_TEST);
+        addSubTest(subTests, ComplianceConstants.TestConstants.SCHEMA_LIST_TEST);
+        addSubTest(subTests, ComplianceConstants.TestConstants.ATTRIBUTE_MUTABILITY_TEST);
+    }
+
+    /*
+     * Add a sub test unless it is already there. The sub tests of a test case are added in order, and those
+     * of the validation are added again for every resource of a list, so they are looked up from the end.
+     *
+     * @param subTests
+     * @param subTest
+     */
+    private static void addSubTest(ArrayList<String> subTests, String subTest) {
+        for (int i = subTests.size() - 1; i >= 0; i--) {
+            if (subTest.equals(subTests.get(i))) {
+                return;
+            }
+        }
+        subTests.add(subTest);
     }
 
     /*
      * Validate SCIMObject for required attributes given the object and the corresponding schema.
      *
      * @param scimObject
-     * @param resourceSchema
+     * @param plan
      */
     private static void validateSCIMObjectForRequiredAttributes(SCIMObject scimObject,
-                                                                SCIMResourceTypeSchema resourceSchema,
-                                                                HttpRequestBase method,
-                                                                String responseString,
-                                                                String headerString,
-                                                                String responseStatus,
-                                                                ArrayList<String> subTests)
+                                                                ValidationPlan plan,
+                                                                ViolationCollector violations)
             throws BadRequestException, CharonException, GeneralComplianceException, ComplianceException {
-        //get attributes from schema.
-        List<AttributeSchema> attributeSchemaList = resourceSchema.getAttributesList();
         //get attribute list from scim object.
         Map<String, Attribute> attributeList = scimObject.getAttributeList();
-        for (AttributeSchema attributeSchema : attributeSchemaList) {
+        for (ValidationPlan.RequiredCheck requiredCheck : plan.getRequiredChecks()) {
             //check for required attributes.
-            if (attributeSchema.getRequired()) {
-                if (!attributeList.containsKey(attributeSchema.getName())) {
-                    String error = "Required attribute " + attributeSchema.getName() + " is missing in the SCIM " +
+            if (requiredCheck.isRequired()) {
+                if (!attributeList.containsKey(requiredCheck.getName())) {
+                    String error = "Required attribute " + requiredCheck.getName() + " is missing in the SCIM " +
                             "Object.";
-                    throw new GeneralComplianceException
-                            (new TestResult(TestResult.ERROR, "Required Attribute Test",
-                            error, ComplianceUtils.getWire(method, responseString,
-                                    headerString, responseStatus, subTests)));
+                    violations.report("Required Attribute Test", error);
                 }
             }
             //check for required sub attributes.
-            AbstractAttribute attribute = (AbstractAttribute) attributeList.get(attributeSchema.getName());
-            validateSCIMObjectForRequiredSubAttributes(attribute, attributeSchema,
-                    method, responseString, headerString, responseStatus, subTests);
+            AbstractAttribute attribute = (AbstractAttribute) attributeList.get(requiredCheck.getName());
+            validateSCIMObjectForRequiredSubAttributes(attribute, requiredCheck, violations);
         }
     }
 
@@ -133,70 +141,57 @@ public class ResponseValidateTests {
          * Validate SCIMObject for required sub attributes given the object and the corresponding schema.
          *
          * @param attribute
-         * @param attributeSchema
+         * @param requiredCheck
          * @throws CharonException
          * @throws BadRequestException
          */
     private static void validateSCIMObjectForRequiredSubAttributes(AbstractAttribute attribute,
-                                                                   AttributeSchema attributeSchema,
-                                                                   HttpRequestBase method,
-                                                                   String responseString,
-                                                                   String headerString,
-                                                                   String responseStatus,
-                                                                   ArrayList<String> subTests)
+                                                                   ValidationPlan.RequiredCheck requiredCheck,
+                                                                   ViolationCollector violations)
             throws GeneralComplianceException, CharonException, ComplianceException {
         if (attribute != null) {
-            List<SCIMAttributeSchema> subAttributesSchemaList =
-                    ((SCIMAttributeSchema) attributeSchema).getSubAttributeSchemas();
+            ValidationPlan.RequiredCheck[] subChecks = requiredCheck.getSubChecks();
 
-            if (subAttributesSchemaList != null) {
-                for (SCIMAttributeSchema subAttributeSchema : subAttributesSchemaList) {
-                    if (subAttributeSchema.getRequired()) {
+            if (subChecks != null) {
+                for (ValidationPlan.RequiredCheck subCheck : subChecks) {
+                    if (subCheck.isRequired()) {
 
                         if (attribute instanceof ComplexAttribute) {
-                            if (attribute.getSubAttribute(subAttributeSchema.getName()) == null) {
-                                String error = "Required sub attribute: " + subAttributeSchema.getName()
+                            if (attribute.getSubAttribute(subCheck.getName()) == null) {
+                                String error = "Required sub attribute: " + subCheck.getName()
                                         + " is missing in the SCIM Attribute: " + attribute.getName();
-                                throw new GeneralComplianceException
-                                        (new TestResult(TestResult.ERROR, "Required Attribute Test",
-                                        error, ComplianceUtils.getWire(method, responseString, headerString,
-                                        responseStatus, subTests)));
+                                violations.report("Required Attribute Test", error);
                             }
                         } else if (attribute instanceof MultiValuedAttribute) {
                             List<Attribute> values =
                                     ((MultiValuedAttribute) attribute).getAttributeValues();
                             for (Attribute value : values) {
                                 if (value instanceof ComplexAttribute) {
-                                    if (value.getSubAttribute(subAttributeSchema.getName()) == null) {
-                                        String error = "Required sub attribute: " + subAttributeSchema.getName()
+                                    if (value.getSubAttribute(subCheck.getName()) == null) {
+                                        String error = "Required sub attribute: " + subCheck.getName()
                                                 + ", is missing in the SCIM Attribute: " + attribute.getName();
-                                        throw new GeneralComplianceException
-                                                (new TestResult(TestResult.ERROR, "Required Attribute Test",
-                                                error, ComplianceUtils.getWire(method, responseString,
-                                                headerString, responseStatus, subTests)));
+                                        violations.report("Required Attribute Test", error);
                                     }
                                 }
                             }
                         }
                     }
                     //Following is only applicable for extension schema validation.
-                    AbstractAttribute subAttribute = null;
-                    if (attribute instanceof ComplexAttribute) {
-                        subAttribute = (AbstractAttribute) ((ComplexAttribute) attribute).getSubAttribute
-                                (subAttributeSchema.getName());
-                    } else if (attribute instanceof MultiValuedAttribute) {
-                        List<Attribute> subAttributeList = ((MultiValuedAttribute) attribute).getAttributeValues();
-                        for (Attribute subAttrbte : subAttributeList) {
-                            if (subAttrbte.getName().equals(subAttributeSchema.getName())) {
-                                subAttribute = (AbstractAttribute) subAttrbte;
+                    if (subCheck.getSubChecks() != null) {
+                        AbstractAttribute subAttribute = null;
+                        if (attribute instanceof ComplexAttribute) {
+                            subAttribute = (AbstractAttribute) ((ComplexAttribute) attribute).getSubAttribute
+                                    (subCheck.getName());
+                        } else if (attribute instanceof MultiValuedAttribute) {
+                            List<Attribute> subAttributeList =
+                                    ((MultiValuedAttribute) attribute).getAttributeValues();
+                            for (Attribute subAttrbte : subAttributeList) {
+                                if (subAttrbte.getName().equals(subCheck.getName())) {
+                                    subAttribute = (AbstractAttribute) subAttrbte;
+                                }
                             }
                         }
-                    }
-                    List<SCIMAttributeSchema> subSubAttributesSchemaList =
-                            ((SCIMAttributeSchema) subAttributeSchema).getSubAttributeSchemas();
-                    if (subSubAttributesSchemaList != null) {
-                        validateSCIMObjectForRequiredSubAttributes(subAttribute, subAttributeSchema,
-                                method, responseString, headerString, responseStatus, subTests);
+                        validateSCIMObjectForRequiredSubAttributes(subAttribute, subCheck, violations);
                     }
                 }
             }
@@ -217,18 +212,24 @@ public class ResponseValidateTests {
                                           String responseStatus,
                                           ArrayList<String> subTests)
             throws GeneralComplianceException, ComplianceException {
+        ViolationCollector violations = new ViolationCollector(method, responseString, headerString,
+                responseStatus, subTests);
+        validateSchemaList(scimObject, ValidationPlan.getPlan(resourceSchema, null, null), violations);
+        violations.complete();
+    }
+
+    private static void validateSchemaList(SCIMObject scimObject,
+                                           ValidationPlan plan,
+                                           ViolationCollector violations)
+            throws GeneralComplianceException, ComplianceException {
 
-        //get resource schema list
-        List<String> resourceSchemaList = resourceSchema.getSchemasList();
         //get the scim object schema list
         List<String> objectSchemaList = scimObject.getSchemaList();
 
-        for (String schema : resourceSchemaList) {
+        for (String schema : plan.getSchemas()) {
             //check for schema.
             if (!objectSchemaList.contains(schema)) {
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Schema List Test",
-                        "Not all schemas are set", ComplianceUtils.getWire(method,
-                        responseString, headerString, responseStatus, subTests)));
+                violations.report("Schema List Test", "Not all schemas are set");
             }
         }
     }
@@ -238,28 +239,11 @@ public class ResponseValidateTests {
     * requested attributes if not they have been removed.
     *
     * @param scimObject
-    * @param requestedAttributes
-    * @param requestedExcludingAttributes
+    * @param plan
     */
     public static void validateReturnedAttributes(AbstractSCIMObject scimObject,
-                                                  String requestedAttributes,
-                                                  String requestedExcludingAttributes,
-                                                  HttpRequestBase method,
-                                                  String responseString,
-                                                  String headerString,
-                                                  String responseStatus,
-                                                  ArrayList<String> subTests) throws GeneralComplianceException, ComplianceException {
-        List<String> requestedAttributesList = null;
-        List<String> requestedExcludingAttributesList = null;
-
-        if (requestedAttributes != null) {
-            //make a list from the comma separated requestedAttributes
-            requestedAttributesList = Arrays.asList(requestedAttributes.split(","));
-        }
-        if (requestedExcludingAttributes != null) {
-            //make a list from the comma separated requestedExcludingAttributes
-            requestedExcludingAttributesList = Arrays.asList(requestedExcludingAttributes.split(","));
-        }
+                                                  ValidationPlan plan,
+                                                  ViolationCollector violations) throws GeneralComplianceException, ComplianceException {
         Map<String, Attribute> attributeList = scimObject.getAttributeList();
         ArrayList<Attribute> attributeTemporyList = new ArrayList<Attribute>();
         for (Attribute attribute : attributeList.values()) {
@@ -268,43 +252,39 @@ public class ResponseValidateTests {
         for (Attribute attribute : attributeTemporyList) {
             //check for never/request attributes.
             if (attribute.getReturned().equals(SCIMDefinitions.Returned.NEVER)) {
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                        "Attribute : " + attribute.getName() + " violates mutability condition.",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                violations.report("Attribute Mutability Test",
+                        "Attribute : " + attribute.getName() + " violates mutability condition.");
             }
             //if the returned property is request, need to check whether is it specifically requested by the user.
             // If so return it.
-            if (requestedAttributes == null && requestedExcludingAttributes == null) {
+            if (!plan.hasRequestedAttributes() && !plan.hasRequestedExcludingAttributes()) {
                 if (attribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
                     scimObject.deleteAttribute(attribute.getName());
                 }
             } else {
                 //A request should only contains either attributes or exclude attribute params. Not both
-                if (requestedAttributes != null) {
+                if (plan.hasRequestedAttributes()) {
                     //if attributes are set, delete all the request and default attributes
                     //and add only the requested attributes
                     if ((attribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT)
                             || attribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST))
-                            && (!requestedAttributesList.contains(attribute.getName())
-                            && !isSubAttributeExistsInList(requestedAttributesList, attribute))) {
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                                "Attribute : " + attribute.getName() + " violates mutability condition.",
-                                ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                            && (!plan.isRequested(attribute.getName())
+                            && !isSubAttributeExistsInList(plan, attribute))) {
+                        violations.report("Attribute Mutability Test",
+                                "Attribute : " + attribute.getName() + " violates mutability condition.");
                     }
-                } else if (requestedExcludingAttributes != null) {
+                } else if (plan.hasRequestedExcludingAttributes()) {
                     //removing attributes which has returned as request. This is because no request is made
                     if (attribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                                "Attribute : " + attribute.getName() + " violates mutability condition.",
-                                ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        violations.report("Attribute Mutability Test",
+                                "Attribute : " + attribute.getName() + " violates mutability condition.");
                     }
                     //if exclude attribute is set, set of exclude attributes need to be
                     // removed from the default set of attributes
                     if ((attribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT))
-                            && requestedExcludingAttributesList.contains(attribute.getName())) {
-                        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                                "Attribute : " + attribute.getName() + " violates mutability condition.",
-                                ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                            && plan.isExcluded(attribute.getName())) {
+                        violations.report("Attribute Mutability Test",
+                                "Attribute : " + attribute.getName() + " violates mutability condition.");
                     }
                 }
             }
@@ -319,26 +299,15 @@ public class ResponseValidateTests {
                     for (Attribute subAttribute : valuesList) {
                         Map<String, Attribute> valuesSubAttributeList = ((ComplexAttribute) subAttribute)
                                 .getSubAttributesList();
-                        ArrayList<Attribute> valuesSubAttributeTemporyList = new ArrayList<Attribute>();
-                        //as we are deleting the attributes form the list, list size will change,
-                        //hence need to traverse on a copy
+                        //sub attributes are only checked, not removed, so there is no need to traverse on a copy
                         for (Attribute subSimpleAttribute : valuesSubAttributeList.values()) {
-                            valuesSubAttributeTemporyList.add(subSimpleAttribute);
-                        }
-                        for (Attribute subSimpleAttribute : valuesSubAttributeTemporyList) {
                             removeValuesSubAttributeOnReturn(subSimpleAttribute, subAttribute, attribute,
-                                    requestedAttributes, requestedExcludingAttributes, requestedAttributesList,
-                                    requestedExcludingAttributesList, method,
-                                    responseString, headerString, responseStatus, subTests);
+                                    plan, violations);
                         }
                     }
                 } else {
                     Map<String, Attribute> subAttributeList = ((ComplexAttribute) attribute).getSubAttributesList();
-                    ArrayList<Attribute> subAttributeTemporyList = new ArrayList<Attribute>();
                     for (Attribute subAttribute : subAttributeList.values()) {
-                        subAttributeTemporyList.add(subAttribute);
-                    }
-                    for (Attribute subAttribute : subAttributeTemporyList) {
                         if (subAttribute.getType().equals(SCIMDefinitions.DataType.COMPLEX)) {
                             //this applicable for extension schema only
                             if (subAttribute.getMultiValued()) {
@@ -348,43 +317,23 @@ public class ResponseValidateTests {
                                 for (Attribute subSubValue : valuesList) {
                                     Map<String, Attribute> subValuesSubAttributeList = ((ComplexAttribute)
                                             subSubValue).getSubAttributesList();
-                                    ArrayList<Attribute> valuesSubSubAttributeTemporyList = new ArrayList<Attribute>();
-                                    //as we are deleting the attributes form the list, list size will change,
-                                    //hence need to traverse on a copy
                                     for (Attribute subSubSimpleAttribute : subValuesSubAttributeList.values()) {
-                                        valuesSubSubAttributeTemporyList.add(subSubSimpleAttribute);
-                                    }
-                                    for (Attribute subSubSimpleAttribute : valuesSubSubAttributeTemporyList) {
                                         removeValuesSubSubAttributeOnReturn(attribute, subAttribute, subSubValue,
                                                 subSubSimpleAttribute,
-                                                requestedAttributes, requestedExcludingAttributes,
-                                                requestedAttributesList, requestedExcludingAttributesList,
-                                                method, responseString, headerString, responseStatus, subTests);
+                                                plan, violations);
                                     }
                                 }
                             } else {
-                                ArrayList<Attribute> subSubAttributeTemporyList = new ArrayList<Attribute>();
                                 Map<String, Attribute> subSubAttributeList = ((ComplexAttribute) subAttribute)
                                         .getSubAttributesList();
                                 for (Attribute subSubAttribute : subSubAttributeList.values()) {
-                                    subSubAttributeTemporyList.add(subSubAttribute);
-                                }
-                                for (Attribute subSubAttribute : subSubAttributeTemporyList) {
                                     removeSubSubAttributesOnReturn(attribute, subAttribute, subSubAttribute,
-                                            requestedAttributes, requestedExcludingAttributes,
-                                            requestedAttributesList, requestedExcludingAttributesList,
-                                            method, responseString, headerString, responseStatus, subTests);
+                                            plan, violations);
                                 }
                             }
-                            removeSubAttributesOnReturn(subAttribute, attribute, requestedAttributes,
-                                    requestedExcludingAttributes,
-                                    requestedAttributesList, requestedExcludingAttributesList,
-                                    method, responseString, headerString, responseStatus, subTests);
+                            removeSubAttributesOnReturn(subAttribute, attribute, plan, violations);
                         } else {
-                            removeSubAttributesOnReturn(subAttribute, attribute, requestedAttributes,
-                                    requestedExcludingAttributes,
-                                    requestedAttributesList, requestedExcludingAttributesList,
-                                    method, responseString, headerString, responseStatus, subTests);
+                            removeSubAttributesOnReturn(subAttribute, attribute, plan, violations);
                         }
                     }
                 }
@@ -396,11 +345,11 @@ public class ResponseValidateTests {
      * This checks whether, within the 'requestedAttributes', is there a sub attribute of the 'attribute'.
      * If so we should not delete the 'attribute'
      *
-     * @param requestedAttributes
+     * @param plan
      * @param attribute
      * @return boolean
      */
-    private static boolean isSubAttributeExistsInList(List<String> requestedAttributes,
+    private static boolean isSubAttributeExistsInList(ValidationPlan plan,
                                                       Attribute attribute) {
         List<Attribute> subAttributes = null;
         if (attribute instanceof MultiValuedAttribute) {
@@ -411,13 +360,13 @@ public class ResponseValidateTests {
                     ArrayList<Attribute> subSimpleAttributes = new ArrayList<Attribute>((
                             (ComplexAttribute) subAttribute).getSubAttributesList().values());
                     for (Attribute subSimpleAttribute : subSimpleAttributes) {
-                        if (requestedAttributes.contains(attribute.getName() + "." + subSimpleAttribute.getName())) {
+                        if (plan.isRequested(plan.getPath(attribute.getName(), subSimpleAttribute.getName()))) {
                             return true;
                         }
                     }
                     //this case is only valid for extension schema
                     if (subAttribute.getType().equals(SCIMDefinitions.DataType.COMPLEX)) {
-                        boolean isSubSubAttributeExists = isSubSubAttributeExistsInList(requestedAttributes,
+                        boolean isSubSubAttributeExists = isSubSubAttributeExistsInList(plan,
                                 attribute, subAttribute);
                         if (isSubSubAttributeExists) {
                             return true;
@@ -430,12 +379,12 @@ public class ResponseValidateTests {
             subAttributes = new ArrayList<Attribute>
                     (((Map) (((ComplexAttribute) attribute).getSubAttributesList())).values());
             for (Attribute subAttribute : subAttributes) {
-                if (requestedAttributes.contains(attribute.getName() + "." + subAttribute.getName())) {
+                if (plan.isRequested(plan.getPath(attribute.getName(), subAttribute.getName()))) {
                     return true;
                 }
                 //this case is only valid for extension schema
                 if (subAttribute.getType().equals(SCIMDefinitions.DataType.COMPLEX)) {
-                    boolean isSubSubAttributeExists = isSubSubAttributeExistsInList(requestedAttributes,
+                    boolean isSubSubAttributeExists = isSubSubAttributeExistsInList(plan,
                             attribute, subAttribute);
                     if (isSubSubAttributeExists) {
                         return true;
@@ -451,12 +400,12 @@ public class ResponseValidateTests {
      * If so we should not delete the 'attribute'
      * This case is only applicable for extension
      *
-     * @param requestedAttributes
+     * @param plan
      * @param grandParentAttribute
      * @param parentAttribute
      * @return
      */
-    private static boolean isSubSubAttributeExistsInList(List<String> requestedAttributes,
+    private static boolean isSubSubAttributeExistsInList(ValidationPlan plan,
                                                          Attribute grandParentAttribute, Attribute parentAttribute) {
         List<Attribute> subAttributes = null;
         if (parentAttribute instanceof MultiValuedAttribute) {
@@ -467,8 +416,8 @@ public class ResponseValidateTests {
                     ArrayList<Attribute> subSimpleAttributes = new ArrayList<Attribute>((
                             (ComplexAttribute) subAttribute).getSubAttributesList().values());
                     for (Attribute subSimpleAttribute : subSimpleAttributes) {
-                        if (requestedAttributes.contains(grandParentAttribute.getName() + "." +
-                                parentAttribute.getName() + "." + subSimpleAttribute.getName())) {
+                        if (plan.isRequested(plan.getPath(grandParentAttribute.getName(),
+                                parentAttribute.getName(), subSimpleAttribute.getName()))) {
                             return true;
                         }
                     }
@@ -479,8 +428,8 @@ public class ResponseValidateTests {
             subAttributes = new ArrayList<Attribute>
                     (((Map) (((ComplexAttribute) parentAttribute).getSubAttributesList())).values());
             for (Attribute subAttribute : subAttributes) {
-                if (requestedAttributes.contains(grandParentAttribute.getName() + "." +
-                        parentAttribute.getName() + "." + subAttribute.getName())) {
+                if (plan.isRequested(plan.getPath(grandParentAttribute.getName(),
+                        parentAttribute.getName(), subAttribute.getName()))) {
                     return true;
                 }
             }
@@ -495,69 +444,52 @@ public class ResponseValidateTests {
      * @param subSimpleAttribute
      * @param subAttribute
      * @param attribute
-     * @param requestedAttributes
-     * @param requestedExcludingAttributes
-     * @param requestedAttributesList
-     * @param requestedExcludingAttributesList
+     * @param plan
      * @param scimObject
      */
     private static void removeValuesSubAttributeOnReturn(Attribute subSimpleAttribute, Attribute subAttribute,
-                                                         Attribute attribute, String requestedAttributes,
-                                                         String requestedExcludingAttributes,
-                                                         List<String> requestedAttributesList,
-                                                         List<String> requestedExcludingAttributesList,
-                                                         HttpRequestBase method,
-                                                         String responseString,
-                                                         String headerString,
-                                                         String responseStatus,
-                                                         ArrayList<String> subTests) throws GeneralComplianceException, ComplianceException {
+                                                         Attribute attribute, ValidationPlan plan,
+                                                         ViolationCollector violations) throws GeneralComplianceException, ComplianceException {
 
         if (subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.NEVER)) {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                    "Attribute : " + attribute.getName()+ "." +
-                            subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+            violations.report("Attribute Mutability Test",
+                    "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                            + subSimpleAttribute.getName() + " violates mutability condition.");
         }
-        if (requestedAttributes == null && requestedExcludingAttributes == null) {
+        if (!plan.hasRequestedAttributes() && !plan.hasRequestedExcludingAttributes()) {
             if (attribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                        "Attribute : " + attribute.getName()+ "." +
-                                subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                violations.report("Attribute Mutability Test",
+                        "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                + subSimpleAttribute.getName() + " violates mutability condition.");
             }
         } else {
             //A request should only contains either attributes or exclude attribute params. Not the both
-            if (requestedAttributes != null) {
+            if (plan.hasRequestedAttributes()) {
                 //if attributes are set, delete all the request and default attributes
                 // and add only the requested attributes
                 if ((subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT)
                         || subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST))
-                        && (!requestedAttributesList.contains(
-                        attribute.getName() + "." + subSimpleAttribute.getName()) &&
-                        !requestedAttributesList.contains(attribute.getName()) &&
-                        !isSubSubAttributeExistsInList(requestedAttributesList, attribute, subSimpleAttribute))) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && (!plan.isRequested(plan.getPath(attribute.getName(), subSimpleAttribute.getName())) &&
+                        !plan.isRequested(attribute.getName()) &&
+                        !isSubSubAttributeExistsInList(plan, attribute, subSimpleAttribute))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                    + subSimpleAttribute.getName() + " violates mutability condition.");
                 }
-            } else if (requestedExcludingAttributes != null) {
+            } else if (plan.hasRequestedExcludingAttributes()) {
                 //removing attributes which has returned as request. This is because no request is made
                 if (subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                    + subSimpleAttribute.getName() + " violates mutability condition.");
                 }
                 //if exclude attribute is set, set of exclude attributes need to be
                 // removed from the default set of attributes
                 if ((subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT))
-                        && requestedExcludingAttributesList.contains(
-                        attribute.getName() + "." + subSimpleAttribute.getName())) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && plan.isExcluded(plan.getPath(attribute.getName(), subSimpleAttribute.getName()))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                    + subSimpleAttribute.getName() + " violates mutability condition.");
                 }
             }
         }
@@ -575,72 +507,57 @@ public class ResponseValidateTests {
      * @param subAttribute
      * @param subValue
      * @param subSimpleAttribute
-     * @param requestedAttributes
-     * @param requestedExcludingAttributes
-     * @param requestedAttributesList
-     * @param requestedExcludingAttributesList
+     * @param plan
      * @param scimObject
      */
     private static void removeValuesSubSubAttributeOnReturn(Attribute attribute, Attribute subAttribute, Attribute
             subValue,
                                                             Attribute subSimpleAttribute,
-                                                            String requestedAttributes,
-                                                            String requestedExcludingAttributes,
-                                                            List<String> requestedAttributesList,
-                                                            List<String> requestedExcludingAttributesList,
-                                                            HttpRequestBase method,
-                                                            String responseString,
-                                                            String headerString,
-                                                            String responseStatus,
-                                                            ArrayList<String> subTests) throws GeneralComplianceException, ComplianceException {
+                                                            ValidationPlan plan,
+                                                            ViolationCollector violations) throws GeneralComplianceException, ComplianceException {
 
 
         if (subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.NEVER)) {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                    "Attribute : " + attribute.getName()+ "." +
-                            subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+            violations.report("Attribute Mutability Test",
+                    "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                            + subSimpleAttribute.getName() + " violates mutability condition.");
         }
-        if (requestedAttributes == null && requestedExcludingAttributes == null) {
+        if (!plan.hasRequestedAttributes() && !plan.hasRequestedExcludingAttributes()) {
             if (attribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                        "Attribute : " + attribute.getName()+ "." +
-                                subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                violations.report("Attribute Mutability Test",
+                        "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                + subSimpleAttribute.getName() + " violates mutability condition.");
             }
         } else {
             //A request should only contains either attributes or exclude attribute params. Not the both
-            if (requestedAttributes != null) {
+            if (plan.hasRequestedAttributes()) {
                 //if attributes are set, delete all the request and default attributes
                 // and add only the requested attributes
                 if ((subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT)
                         || subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST))
-                        && (!requestedAttributesList.contains(
-                        attribute.getName() + "." + subAttribute.getName() + "." + subSimpleAttribute.getName()) &&
-                        !requestedAttributesList.contains(attribute.getName()) &&
-                        !requestedAttributesList.contains(attribute.getName() + "." + subAttribute.getName()))) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && (!plan.isRequested(plan.getPath(attribute.getName(),
+                                subAttribute.getName(), subSimpleAttribute.getName())) &&
+                        !plan.isRequested(attribute.getName()) &&
+                        !plan.isRequested(plan.getPath(attribute.getName(), subAttribute.getName())))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                    + subSimpleAttribute.getName() + " violates mutability condition.");
                 }
-            } else if (requestedExcludingAttributes != null) {
+            } else if (plan.hasRequestedExcludingAttributes()) {
                 //removing attributes which has returned as request. This is because no request is made
                 if (subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                    + subSimpleAttribute.getName() + " violates mutability condition.");
                 }
                 //if exclude attribute is set, set of exclude attributes need to be
                 // removed from the default set of attributes
                 if ((subSimpleAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT))
-                        && requestedExcludingAttributesList.contains(
-                        attribute.getName() + "." + subAttribute.getName() + "." + subSimpleAttribute.getName())) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + "." + subSimpleAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && plan.isExcluded(plan.getPath(attribute.getName(),
+                                subAttribute.getName(), subSimpleAttribute.getName()))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName() + "."
+                                    + subSimpleAttribute.getName() + " violates mutability condition.");
                 }
             }
         }
@@ -655,75 +572,60 @@ public class ResponseValidateTests {
      * @param attribute
      * @param subAttribute
      * @param subSubAttribute
-     * @param requestedAttributes
-     * @param requestedExcludingAttributes
-     * @param requestedAttributesList
-     * @param requestedExcludingAttributesList
+     * @param plan
      * @param scimObject
      * @throws CharonException
      */
     private static void removeSubSubAttributesOnReturn(Attribute attribute,
                                                        Attribute subAttribute,
                                                        Attribute subSubAttribute,
-                                                       String requestedAttributes,
-                                                       String requestedExcludingAttributes,
-                                                       List<String> requestedAttributesList,
-                                                       List<String> requestedExcludingAttributesList,
-                                                       HttpRequestBase method,
-                                                       String responseString,
-                                                       String headerString,
-                                                       String responseStatus,
-                                                       ArrayList<String> subTests) throws GeneralComplianceException, ComplianceException {
+                                                       ValidationPlan plan,
+                                                       ViolationCollector violations) throws GeneralComplianceException, ComplianceException {
         //check for never/request attributes.
         if (subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.NEVER)) {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                    "Attribute : " + attribute.getName()+ "." +
-                            subAttribute.getName() + " violates mutability condition.",
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+            violations.report("Attribute Mutability Test",
+                    "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                            + " violates mutability condition.");
         }
         //if the returned property is request, need to check whether is it specifically requested by the user.
         // If so return it.
-        if (requestedAttributes == null && requestedExcludingAttributes == null) {
+        if (!plan.hasRequestedAttributes() && !plan.hasRequestedExcludingAttributes()) {
             if (subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                        "Attribute : " + attribute.getName()+ "." +
-                                subAttribute.getName() + " violates mutability condition.",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                violations.report("Attribute Mutability Test",
+                        "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                + " violates mutability condition.");
             }
         } else {
             //A request should only contains either attributes or exclude attribute params. Not the both
-            if (requestedAttributes != null) {
+            if (plan.hasRequestedAttributes()) {
                 //if attributes are set, delete all the request and default attributes
                 // and add only the requested attributes
                 if ((subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT)
                         || subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST))
-                        && (!requestedAttributesList.contains(
-                        attribute.getName() + "." + subAttribute.getName() + "." + subSubAttribute.getName()) &&
-                        !requestedAttributesList.contains(attribute.getName()) &&
-                        !requestedAttributesList.contains(attribute.getName() + "." + subAttribute.getName()) &&
+                        && (!plan.isRequested(plan.getPath(attribute.getName(),
+                                subAttribute.getName(), subSubAttribute.getName())) &&
+                        !plan.isRequested(attribute.getName()) &&
+                        !plan.isRequested(plan.getPath(attribute.getName(), subAttribute.getName())) &&
                         !subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.ALWAYS))) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                    + " violates mutability condition.");
                 }
-            } else if (requestedExcludingAttributes != null) {
+            } else if (plan.hasRequestedExcludingAttributes()) {
                 //removing attributes which has returned as request. This is because no request is made
                 if (subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                    + " violates mutability condition.");
                 }
                 //if exclude attribute is set, set of exclude attributes need to be
                 // removed from the default set of attributes
                 if ((subSubAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT))
-                        && requestedExcludingAttributesList.contains(
-                        attribute.getName() + "." + subAttribute.getName() + "." + subSubAttribute.getName())) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && plan.isExcluded(plan.getPath(attribute.getName(),
+                                subAttribute.getName(), subSubAttribute.getName()))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                    + " violates mutability condition.");
                 }
             }
         }
@@ -735,73 +637,56 @@ public class ResponseValidateTests {
      *
      * @param subAttribute
      * @param attribute
-     * @param requestedAttributes
-     * @param requestedExcludingAttributes
-     * @param requestedAttributesList
-     * @param requestedExcludingAttributesList
+     * @param plan
      * @param scimObject
      */
 
     private static void removeSubAttributesOnReturn(Attribute subAttribute,
                                                     Attribute attribute,
-                                                    String requestedAttributes,
-                                                    String requestedExcludingAttributes,
-                                                    List<String> requestedAttributesList,
-                                                    List<String> requestedExcludingAttributesList,
-                                                    HttpRequestBase method,
-                                                    String responseString,
-                                                    String headerString,
-                                                    String responseStatus,
-                                                    ArrayList<String> subTests) throws GeneralComplianceException, ComplianceException {
+                                                    ValidationPlan plan,
+                                                    ViolationCollector violations) throws GeneralComplianceException, ComplianceException {
         //check for never/request attributes.
         if (subAttribute.getReturned().equals(SCIMDefinitions.Returned.NEVER)) {
-            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                    "Attribute : " + attribute.getName()+ "." +
-                            subAttribute.getName() + " violates mutability condition.",
-                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+            violations.report("Attribute Mutability Test",
+                    "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                            + " violates mutability condition.");
         }
         //if the returned property is request, need to check whether is it specifically requested by the user.
         // If so return it.
-        if (requestedAttributes == null && requestedExcludingAttributes == null) {
+        if (!plan.hasRequestedAttributes() && !plan.hasRequestedExcludingAttributes()) {
             if (subAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                        "Attribute : " + attribute.getName()+ "." +
-                                subAttribute.getName() + " violates mutability condition.",
-                        ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                violations.report("Attribute Mutability Test",
+                        "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                + " violates mutability condition.");
             }
         } else {
             //A request should only contains either attributes or exclude attribute params. Not the both
-            if (requestedAttributes != null) {
+            if (plan.hasRequestedAttributes()) {
                 //if attributes are set, delete all the request and default attributes
                 // and add only the requested attributes
                 if ((subAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT)
                         || subAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST))
-                        && (!requestedAttributesList.contains(
-                        attribute.getName() + "." + subAttribute.getName()) &&
-                        !requestedAttributesList.contains(attribute.getName()) &&
-                        !isSubSubAttributeExistsInList(requestedAttributesList, attribute, subAttribute))) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && (!plan.isRequested(plan.getPath(attribute.getName(), subAttribute.getName())) &&
+                        !plan.isRequested(attribute.getName()) &&
+                        !isSubSubAttributeExistsInList(plan, attribute, subAttribute))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                    + " violates mutability condition.");
                 }
-            } else if (requestedExcludingAttributes != null) {
+            } else if (plan.hasRequestedExcludingAttributes()) {
                 //removing attributes which has returned as request. This is because no request is made
                 if (subAttribute.getReturned().equals(SCIMDefinitions.Returned.REQUEST)) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                    + " violates mutability condition.");
                 }
                 //if exclude attribute is set, set of exclude attributes need to be
                 // removed from the default set of attributes
                 if ((subAttribute.getReturned().equals(SCIMDefinitions.Returned.DEFAULT))
-                        && requestedExcludingAttributesList.contains(
-                        attribute.getName() + "." + subAttribute.getName())) {
-                    throw new GeneralComplianceException(new TestResult(TestResult.ERROR, "Attribute Mutability Test",
-                            "Attribute : " + attribute.getName()+ "." +
-                                    subAttribute.getName() + " violates mutability condition.",
-                            ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+                        && plan.isExcluded(plan.getPath(attribute.getName(), subAttribute.getName()))) {
+                    violations.report("Attribute Mutability Test",
+                            "Attribute : " + attribute.getName() + "." + subAttribute.getName()
+                                    + " violates mutability condition.");
                 }
             }
         }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This is a data set of generated users, grown on demand to the sizes the scaling test classes measure at.
+ * The users are created through /Bulk when the service provider supports it, or else with concurrent POST
+ * requests, and every user is registered with the cleanup queue as soon as it is created. User i has the
+ * userName prefix-i padded to six digits, and a familyName, a work and a home email, and a nickName when i
+ * is even, all starting with that userName. All the values are lower case and unique to the data set, so
+ * the users a filter on those attributes selects are known without asking the service provider.
+ */
+public class SeededDataset {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private LoadRunner loadRunner;
+    private String usersURL;
+    // keeps the users of concurrent runs against the same service provider apart
+    private String prefix;
+    // index -> id of the created users, null where the create failed
+    private List<String> userIDs = new ArrayList<>();
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     * @param loadRunner used to create the users when bulk is not supported
+     * @param name short name of the data set, used in the user names, eg: page
+     */
+    public SeededDataset(ComplianceTestMetaDataHolder complianceTestMetaDataHolder, LoadRunner loadRunner,
+                         String name) {
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+        this.loadRunner = loadRunner;
+        usersURL = complianceTestMetaDataHolder.getUrl() + ComplianceConstants.TestConstants.USERS_ENDPOINT;
+        prefix = name + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Get the prefix of the user names.
+     * @return
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Get the number of users created so far.
+     * @return
+     */
+    public synchronized int size() {
+        return userIDs.size();
+    }
+
+    /**
+     * Get the ids of the created users.
+     * @return
+     */
+    public synchronized List<String> getIDs() {
+        ArrayList<String> ids = new ArrayList<>();
+        for (String id : userIDs) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Check whether the user with the given index was created.
+     * @param index
+     * @return
+     */
+    public synchronized boolean isCreated(int index) {
+        return index < userIDs.size() && userIDs.get(index) != null;
+    }
+
+    /**
+     * Get the userName of the user with the given index.
+     * @param index
+     * @return
+     */
+    public String getUserName(int index) {
+        return String.format("%s-%06d", prefix, index);
+    }
+
+    /**
+     * Get the name.familyName of the user with the given index.
+     * @param index
+     * @return
+     */
+    public String getFamilyName(int index) {
+        return getUserName(index) + "-family";
+    }
+
+    /**
+     * Get the nickName of the user with the given index.
+     * @param index
+     * @return the nickName, or null for the users with an odd index, who have none
+     */
+    public String getNickName(int index) {
+        return index % 2 == 0 ? getUserName(index) + "-nick" : null;
+    }
+
+    /**
+     * Get the work email of the user with the given index.
+     * @param index
+     * @return
+     */
+    public String getWorkEmail(int index) {
+        return getUserName(index) + "@example.com";
+    }
+
+    /**
+     * Get the home email of the user with the given index.
+     * @param index
+     * @return
+     */
+    public String getHomeEmail(int index) {
+        return getUserName(index) + "@example.org";
+    }
+
+    /**
+     * Get the json representation of the user with the given index.
+     * @param index
+     * @return
+     */
+    public String getUser(int index) {
+        StringBuilder user = new StringBuilder();
+        user.append("{\"schemas\":[\"urn:ietf:params:scim:schemas:core:2.0:User\"],\"userName\":\"")
+                .append(getUserName(index)).append("\",\"password\":\"")
+                .append(ComplianceConstants.DefinedInstances.DEFINED_USER_PASSWORD)
+                .append("\",\"name\":{\"givenName\":\"given\",\"familyName\":\"").append(getFamilyName(index))
+                .append("\"},\"emails\":[{\"value\":\"").append(getWorkEmail(index))
+                .append("\",\"type\":\"work\",\"primary\":true},{\"value\":\"").append(getHomeEmail(index))
+                .append("\",\"type\":\"home\"}]");
+        if (getNickName(index) != null) {
+            user.append(",\"nickName\":\"").append(getNickName(index)).append("\"");
+        }
+        return user.append("}").toString();
+    }
+
+    /**
+     * Create users until the data set has the given size.
+     * @param size
+     * @param testName name of the test result reported
+     * @return how long it took
+     * @throws ComplianceException
+     * @throws GeneralComplianceException if any of the users could not be created
+     */
+    public synchronized TestResult grow(int size, String testName)
+            throws ComplianceException, GeneralComplianceException {
+        final int from = userIDs.size();
+        if (size <= from) {
+            return new TestResult(TestResult.SUCCESS, testName, "The data set has " + from + " users.", null);
+        }
+        long startedAt = System.nanoTime();
+        final CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        if (BulkProvisioner.isBulkSupported(complianceTestMetaDataHolder)) {
+            ArrayList<String> definedUsers = new ArrayList<>();
+            for (int i = from; i < size; i++) {
+                definedUsers.add(getUser(i));
+            }
+            ArrayList<String> createdIDs = new ArrayList<>();
+            try {
+                new BulkProvisioner(complianceTestMetaDataHolder).create(
+                        ComplianceConstants.TestConstants.USERS_ENDPOINT, definedUsers, createdIDs, testName,
+                        id -> cleanupQueue.register(usersURL + "/" + id));
+            } finally {
+                added(createdIDs);
+            }
+        } else {
+            final String[] createdIDs = new String[size - from];
+            LoadRunner.Measurement measurement;
+            try {
+                measurement = loadRunner.run(testName, size - from, new LoadRunner.Operation() {
+                    public HttpRequestBase newRequest(int index) {
+                        HttpPost method = new HttpPost(usersURL);
+                        method.setHeader("Accept", "application/json");
+                        method.setHeader("Content-Type", "application/json");
+                        method.setEntity(new ByteArrayEntity(
+                                getUser(from + index).getBytes(StandardCharsets.UTF_8)));
+                        return method;
+                    }
+
+                    public boolean completed(int index, int statusCode, String responseString) {
+                        if (statusCode != 201) {
+                            return false;
+                        }
+                        try {
+                            createdIDs[index] = new JSONObject(responseString).optString("id", null);
+                        } catch (JSONException e) {
+                            return false;
+                        }
+                        if (createdIDs[index] == null) {
+                            return false;
+                        }
+                        cleanupQueue.register(usersURL + "/" + createdIDs[index]);
+                        return true;
+                    }
+                });
+            } finally {
+                // written by the load runner threads, which have all completed by now
+                added(Arrays.asList(createdIDs));
+            }
+            if (measurement.getErrors() > 0) {
+                TestResult result = measurement.toTestResult();
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "Could not create the users at url " + usersURL + ". " + result.getMessage(),
+                        result.getWire()));
+            }
+        }
+        return new TestResult(TestResult.SUCCESS, testName, String.format("Created %d users in %.1f s.",
+                size - from, (System.nanoTime() - startedAt) / 1e9), null);
+    }
+
+    /**
+     * Delete all the created users.
+     * @throws ComplianceException
+     */
+    public synchronized void delete() throws ComplianceException {
+        List<String> ids = getIDs();
+        userIDs = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return;
+        }
+        CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        ArrayList<String> paths = new ArrayList<>();
+        ArrayList<String> locations = new ArrayList<>();
+        for (String id : ids) {
+            paths.add(ComplianceConstants.TestConstants.USERS_ENDPOINT + "/" + id);
+            locations.add(usersURL + "/" + id);
+        }
+        if (BulkProvisioner.isBulkSupported(complianceTestMetaDataHolder)
+                && new BulkProvisioner(complianceTestMetaDataHolder).delete(paths)) {
+            cleanupQueue.completed(locations);
+            return;
+        }
+        // one by one, off the critical path; the cleanup queue reports what is left at the end of the run
+        for (String location : locations) {
+            cleanupQueue.delete(location);
+        }
+    }
+
+    /*
+     * The users are registered with the cleanup queue as their responses are read, this only adds them to
+     * the data set.
+     */
+    private void added(List<String> createdIDs) {
+        userIDs.addAll(createdIDs);
+    }
+}
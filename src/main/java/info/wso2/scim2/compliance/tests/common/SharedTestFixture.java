@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Wire;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.httpclient.HTTPClient;
+import info.wso2.scim2.compliance.protocol.ComplianceTestMetaDataHolder;
+import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.protocol.WireCapture;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.charon3.core.encoder.JSONDecoder;
+import org.wso2.charon3.core.exceptions.BadRequestException;
+import org.wso2.charon3.core.exceptions.CharonException;
+import org.wso2.charon3.core.exceptions.InternalErrorException;
+import org.wso2.charon3.core.objects.AbstractSCIMObject;
+import org.wso2.charon3.core.objects.Group;
+import org.wso2.charon3.core.objects.User;
+import org.wso2.charon3.core.schema.SCIMResourceSchemaManager;
+import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * This is the read only data set shared by the query test classes (List, Filter, Sort and Pagination) of a
+ * compliance run. The users and the groups are created once, on first use, and deleted once the last
+ * reference is released. The compliance run holds a reference for its whole duration, and each test class
+ * holds one while it runs, so the data set outlives every suite that uses it.
+ */
+public class SharedTestFixture {
+
+    private ComplianceTestMetaDataHolder complianceTestMetaDataHolder;
+    private int references = 0;
+    // id -> userName and id -> displayName of the created resources, including those of a failed provisioning
+    private LinkedHashMap<String, String> userIDs = new LinkedHashMap<>();
+    private LinkedHashMap<String, String> groupIDs = new LinkedHashMap<>();
+    private boolean usersProvisioned = false;
+    private boolean groupsProvisioned = false;
+    private TestResult usersFailure;
+    private TestResult groupsFailure;
+
+    /**
+     * Initialize.
+     * @param complianceTestMetaDataHolder
+     */
+    public SharedTestFixture(ComplianceTestMetaDataHolder complianceTestMetaDataHolder) {
+
+        this.complianceTestMetaDataHolder = complianceTestMetaDataHolder;
+    }
+
+    /**
+     * Take a reference on the data set.
+     */
+    public synchronized void acquire() {
+        references++;
+    }
+
+    /**
+     * Give up a reference on the data set. The last release deletes the created users and groups.
+     * @throws ComplianceException
+     */
+    public synchronized void release() throws ComplianceException {
+        if (references == 0) {
+            return;
+        }
+        references--;
+        if (references > 0) {
+            return;
+        }
+        ArrayList<String> paths = new ArrayList<>();
+        for (String id : userIDs.keySet()) {
+            paths.add(ComplianceConstants.TestConstants.USERS_ENDPOINT + "/" + id);
+        }
+        for (String id : groupIDs.keySet()) {
+            paths.add(ComplianceConstants.TestConstants.GROUPS_ENDPOINT + "/" + id);
+        }
+        userIDs = new LinkedHashMap<>();
+        groupIDs = new LinkedHashMap<>();
+        usersProvisioned = false;
+        groupsProvisioned = false;
+        usersFailure = null;
+        groupsFailure = null;
+
+        if (paths.isEmpty()) {
+            return;
+        }
+        CleanupQueue cleanupQueue = complianceTestMetaDataHolder.getCleanupQueue();
+        ArrayList<String> locations = new ArrayList<>();
+        for (String path : paths) {
+            locations.add(complianceTestMetaDataHolder.getUrl() + path);
+        }
+        if (BulkProvisioner.isBulkSupported(complianceTestMetaDataHolder)
+                && new BulkProvisioner(complianceTestMetaDataHolder).delete(paths)) {
+            cleanupQueue.completed(locations);
+            return;
+        }
+        // one by one, off the critical path; the cleanup queue reports what is left at the end of the run
+        for (String location : locations) {
+            cleanupQueue.delete(location);
+        }
+    }
+
+    /**
+     * Get the shared users, creating them on first use.
+     * @param testName name of the test result reported if the users can not be created, eg: List Users
+     * @return id -> userName of the created users
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    public synchronized Map<String, String> getUsers(String testName)
+            throws ComplianceException, GeneralComplianceException {
+        if (!usersProvisioned && usersFailure == null) {
+            ArrayList<String> definedUsers = new ArrayList<>();
+            definedUsers.add("{\"password\": \"7019asd81\",\"userName\": \"AbrTkAA21\"}");
+            definedUsers.add("{\"password\": \"7019asd82\",\"userName\": \"UttEdHt22\"}");
+            definedUsers.add("{\"password\": \"7019asd83\",\"userName\": \"KKTQwhr23\"}");
+            try {
+                provision(ComplianceConstants.TestConstants.USERS_ENDPOINT, definedUsers, "userName",
+                        SCIMResourceSchemaManager.getInstance().getUserResourceSchema(), User::new, userIDs,
+                        testName);
+                usersProvisioned = true;
+            } catch (GeneralComplianceException e) {
+                usersFailure = e.getResult();
+            }
+        }
+        if (usersFailure != null) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                    usersFailure.getMessage(), usersFailure.getWire()));
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(userIDs));
+    }
+
+    /**
+     * Get the shared groups, creating them on first use.
+     * @param testName name of the test result reported if the groups can not be created, eg: List Groups
+     * @return id -> displayName of the created groups
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    public synchronized Map<String, String> getGroups(String testName)
+            throws ComplianceException, GeneralComplianceException {
+        if (!groupsProvisioned && groupsFailure == null) {
+            ArrayList<String> definedGroups = new ArrayList<>();
+            definedGroups.add("{\"displayName\": \"EYtXcD21\"}");
+            definedGroups.add("{\"displayName\": \"BktqER22\"}");
+            definedGroups.add("{\"displayName\": \"ZwLtOP23\"}");
+            try {
+                provision(ComplianceConstants.TestConstants.GROUPS_ENDPOINT, definedGroups, "displayName",
+                        SCIMResourceSchemaManager.getInstance().getGroupResourceSchema(), Group::new, groupIDs,
+                        testName);
+                groupsProvisioned = true;
+            } catch (GeneralComplianceException e) {
+                groupsFailure = e.getResult();
+            }
+        }
+        if (groupsFailure != null) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                    groupsFailure.getMessage(), groupsFailure.getWire()));
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(groupIDs));
+    }
+
+    /**
+     * Create the defined resources, through /Bulk when the service provider supports it.
+     * @param endpoint
+     * @param definedResources
+     * @param nameAttribute attribute of the defined resources kept as the name, eg: userName
+     * @param schema
+     * @param resourceFactory
+     * @param createdIDs filled with id -> name of the created resources, also when provisioning fails
+     * @param testName
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    private void provision(String endpoint, List<String> definedResources, String nameAttribute,
+                           SCIMResourceTypeSchema schema, Supplier<AbstractSCIMObject> resourceFactory,
+                           Map<String, String> createdIDs, String testName)
+            throws ComplianceException, GeneralComplianceException {
+        ArrayList<String> names = new ArrayList<>();
+        try {
+            for (String definedResource : definedResources) {
+                names.add(new JSONObject(definedResource).getString(nameAttribute));
+            }
+        } catch (JSONException e) {
+            throw new ComplianceException("Could not read the default resources of " + endpoint + ".");
+        }
+
+        if (BulkProvisioner.isBulkSupported(complianceTestMetaDataHolder)) {
+            ArrayList<String> ids = new ArrayList<>();
+            try {
+                new BulkProvisioner(complianceTestMetaDataHolder).create(endpoint, definedResources, ids, testName);
+            } finally {
+                for (int i = 0; i < ids.size(); i++) {
+                    if (ids.get(i) != null) {
+                        createdIDs.put(ids.get(i), names.get(i));
+                        complianceTestMetaDataHolder.getCleanupQueue().register(
+                                complianceTestMetaDataHolder.getUrl() + endpoint + "/" + ids.get(i));
+                    }
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < definedResources.size(); i++) {
+            AbstractSCIMObject resource = (AbstractSCIMObject) create(complianceTestMetaDataHolder.getUrl()
+                    + endpoint, definedResources.get(i), schema, resourceFactory.get(), testName);
+            try {
+                createdIDs.put(resource.getId(), names.get(i));
+                complianceTestMetaDataHolder.getCleanupQueue().register(
+                        complianceTestMetaDataHolder.getUrl() + endpoint + "/" + resource.getId());
+            } catch (CharonException e) {
+                throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                        "Could not decode the server response of the default resources create.",
+                        ComplianceUtils.getWire(e)));
+            }
+        }
+    }
+
+    /**
+     * Create a resource and decode the server response.
+     * @param url
+     * @param definedResource
+     * @param schema
+     * @param resource
+     * @param testName
+     * @return
+     * @throws ComplianceException
+     * @throws GeneralComplianceException
+     */
+    private Object create(String url, String definedResource, SCIMResourceTypeSchema schema,
+                          Object resource, String testName) throws ComplianceException, GeneralComplianceException {
+
+        HttpPost method = new HttpPost(url);
+
+        HttpClient client = HTTPClient.getHttpClient(complianceTestMetaDataHolder);
+
+        method = (HttpPost) HTTPClient.setAuthorizationHeader(complianceTestMetaDataHolder, method);
+        method.setHeader("Accept", "application/json");
+        method.setHeader("Content-Type", "application/json");
+
+        HttpResponse response = null;
+        String responseString = "";
+        String headerString = "";
+        String responseStatus = "";
+        ArrayList<String> subTests =  new ArrayList<>();
+        try {
+            HttpEntity entity = new ByteArrayEntity(definedResource.getBytes("UTF-8"));
+            method.setEntity(entity);
+            response = client.execute(method);
+            // Read the response body.
+            responseString = new BasicResponseHandler().handleResponse(response);
+            responseStatus = String.valueOf(response.getStatusLine().getStatusCode());
+        } catch (Exception e) {
+            Wire wire;
+            if (response != null) {
+                headerString = WireCapture.getHeaderString(response);
+                responseStatus = response.getStatusLine().getStatusCode() + " "
+                        + response.getStatusLine().getReasonPhrase();
+                wire = ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests);
+            } else {
+                wire = ComplianceUtils.getWire(e);
+            }
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                    "Could not create default resources at url " + url, wire));
+        }
+        if (!responseStatus.equals("201")) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                    "Could not create default resources at url " + url,
+                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+        }
+        try {
+            return new JSONDecoder().decodeResource(responseString, schema, resource);
+        } catch (BadRequestException | CharonException | InternalErrorException e) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, testName,
+                    "Could not decode the server response of the default resources create.",
+                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+        }
+    }
+}
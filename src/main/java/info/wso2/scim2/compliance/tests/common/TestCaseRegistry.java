@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.tests.TestCase;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This keeps the test cases of each test class. The test cases of a class are discovered once, on first
+ * use, and kept as method handles in a stable order: by TestCase order, then by method name.
+ */
+public class TestCaseRegistry {
+
+    private static final ConcurrentHashMap<Class<?>, List<Entry>> registry = new ConcurrentHashMap<>();
+
+    /**
+     * A registered test case.
+     */
+    public static class Entry {
+
+        private final String name;
+        private final int order;
+        private final boolean parallelSafe;
+        private final MethodHandle methodHandle;
+
+        private Entry(String name, int order, boolean parallelSafe, MethodHandle methodHandle) {
+            this.name = name;
+            this.order = order;
+            this.parallelSafe = parallelSafe;
+            this.methodHandle = methodHandle;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isParallelSafe() {
+            return parallelSafe;
+        }
+
+        /**
+         * Invoke the test case on the given test class instance. Exceptions thrown by the test case
+         * are propagated as they are.
+         * @param testSuite
+         * @return
+         * @throws Throwable
+         */
+        public Object invoke(Object testSuite) throws Throwable {
+            return (Object) methodHandle.invokeExact(testSuite);
+        }
+    }
+
+    /**
+     * Get the test cases of the given test class.
+     * @param testClass
+     * @return
+     * @throws ComplianceException
+     */
+    public static List<Entry> getTestCases(Class<?> testClass) throws ComplianceException {
+        List<Entry> testCases = registry.get(testClass);
+        if (testCases == null) {
+            testCases = buildTestCases(testClass);
+            List<Entry> existing = registry.putIfAbsent(testClass, testCases);
+            if (existing != null) {
+                testCases = existing;
+            }
+        }
+        return testCases;
+    }
+
+    private static List<Entry> buildTestCases(Class<?> testClass) throws ComplianceException {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodType genericType = MethodType.methodType(Object.class, Object.class);
+        ArrayList<Entry> testCases = new ArrayList<>();
+        for (Method method : testClass.getMethods()) {
+            TestCase testCase = method.getAnnotation(TestCase.class);
+            if (testCase == null) {
+                continue;
+            }
+            try {
+                testCases.add(new Entry(method.getName(), testCase.order(), testCase.parallelSafe(),
+                        lookup.unreflect(method).asType(genericType)));
+            } catch (IllegalAccessException e) {
+                throw new ComplianceException("Error in registering the test case " + method.getName() + ".");
+            }
+        }
+        Collections.sort(testCases, new Comparator<Entry>() {
+            public int compare(Entry first, Entry second) {
+                if (first.order != second.order) {
+                    return first.order < second.order ? -1 : 1;
+                }
+                return first.name.compareTo(second.name);
+            }
+        });
+        return Collections.unmodifiableList(testCases);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.CriticalComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import info.wso2.scim2.compliance.utils.ExecutorFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This runs the test cases of a test class, as registered in the TestCaseRegistry. Test cases which are
+ * not parallel safe run one after another first, then the parallel safe test cases run concurrently.
+ * Results are returned in the registry order.
+ */
+public class TestCaseRunner {
+
+    private static final ExecutorService executorService = ExecutorFactory.newExecutor(
+            "compliance-test-case-", ComplianceConstants.ExecutionConstants.TEST_CASE_POOL_SIZE);
+
+    private Object testSuite;
+    private String testName;
+    private HashMap<String, TestResult> skippedTestCases = new HashMap<>();
+
+    /**
+     * Initialize.
+     * @param testSuite instance of the test class
+     * @param testName name used in the error messages, eg: User Test
+     */
+    public TestCaseRunner(Object testSuite, String testName) {
+        this.testSuite = testSuite;
+        this.testName = testName;
+    }
+
+    /**
+     * Report the given result instead of running the test case.
+     * @param methodName
+     * @param skippedResult
+     */
+    public void skipTestCase(String methodName, TestResult skippedResult) {
+        skippedTestCases.put(methodName, skippedResult);
+    }
+
+    /**
+     * Run all the test cases of the test class.
+     * @return
+     * @throws ComplianceException
+     */
+    public ArrayList<TestResult> runTestCases() throws ComplianceException {
+        List<TestCaseRegistry.Entry> testCases = TestCaseRegistry.getTestCases(testSuite.getClass());
+
+        ArrayList<ArrayList<TestResult>> results = new ArrayList<>();
+        for (TestCaseRegistry.Entry testCase : testCases) {
+            if (testCase.isParallelSafe()) {
+                results.add(null);
+            } else {
+                results.add(runTestCase(testCase));
+            }
+        }
+
+        HashMap<Integer, Future<ArrayList<TestResult>>> futures = new HashMap<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            final TestCaseRegistry.Entry testCase = testCases.get(i);
+            if (testCase.isParallelSafe()) {
+                futures.put(i, executorService.submit(new Callable<ArrayList<TestResult>>() {
+                    public ArrayList<TestResult> call() throws ComplianceException {
+                        return runTestCase(testCase);
+                    }
+                }));
+            }
+        }
+        ComplianceException failure = null;
+        for (int i = 0; i < testCases.size(); i++) {
+            if (!futures.containsKey(i)) {
+                continue;
+            }
+            try {
+                results.set(i, futures.get(i).get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof ComplianceException ? (ComplianceException) e.getCause()
+                            : new ComplianceException("Error occurred in " + testName + ".");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ComplianceException("Error occurred in " + testName + ".");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        ArrayList<TestResult> testResults = new ArrayList<>();
+        for (ArrayList<TestResult> result : results) {
+            testResults.addAll(result);
+        }
+        return testResults;
+    }
+
+    /**
+     * Invoke a single test case. Test cases return either a TestResult or a list of them.
+     * @param testCase
+     * @return
+     * @throws ComplianceException
+     */
+    @SuppressWarnings("unchecked")
+    private ArrayList<TestResult> runTestCase(TestCaseRegistry.Entry testCase) throws ComplianceException {
+        ArrayList<TestResult> testResults = new ArrayList<>();
+        if (skippedTestCases.containsKey(testCase.getName())) {
+            testResults.add(skippedTestCases.get(testCase.getName()));
+            return testResults;
+        }
+        try {
+            Object result = testCase.invoke(testSuite);
+            if (result instanceof Collection) {
+                testResults.addAll((Collection<TestResult>) result);
+            } else {
+                testResults.add((TestResult) result);
+            }
+        } catch (ComplianceException e) {
+            throw e;
+        } catch (GeneralComplianceException e) {
+            testResults.add(e.getResult());
+        } catch (CriticalComplianceException e) {
+            testResults.add(e.getResult());
+        } catch (Throwable throwable) {
+            throw new ComplianceException("Error occurred in " + testName + ".");
+        }
+        return testResults;
+    }
+}
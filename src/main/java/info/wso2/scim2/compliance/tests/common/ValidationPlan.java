@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import org.wso2.charon3.core.schema.AttributeSchema;
+import org.wso2.charon3.core.schema.SCIMAttributeSchema;
+import org.wso2.charon3.core.schema.SCIMResourceTypeSchema;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * This is what ResponseValidateTests needs to know about a resource schema and the requested attributes,
+ * worked out once per schema instance and request parameters, and shared by every resource validated against
+ * them. It holds the required attribute checks flattened out of the schema, the schemas a resource must
+ * list, the requested and excluded attributes as sets and the dotted paths of the schema attributes, so
+ * that validating a resource does not walk the schema, split the parameters or build paths.
+ */
+public class ValidationPlan {
+
+    // schema -> request parameters -> plan, the schemas built from the /Schemas of a service provider go
+    // with its run
+    private static final Map<SCIMResourceTypeSchema, Map<String, ValidationPlan>> plans = new WeakHashMap<>();
+
+    private final RequiredCheck[] requiredChecks;
+    private final String[] schemas;
+    private final Set<String> requestedAttributes;
+    private final Set<String> requestedExcludingAttributes;
+    // parent path -> attribute name -> dotted path
+    private final Map<String, Map<String, String>> paths = new HashMap<>();
+
+    /**
+     * Get the plan for the given schema and request parameters, compiling it on first use.
+     * @param schema
+     * @param requestedAttributes comma separated attributes parameter, or null
+     * @param requestedExcludingAttributes comma separated excludedAttributes parameter, or null
+     * @return
+     */
+    public static synchronized ValidationPlan getPlan(SCIMResourceTypeSchema schema, String requestedAttributes,
+                                                      String requestedExcludingAttributes) {
+        Map<String, ValidationPlan> schemaPlans = plans.get(schema);
+        if (schemaPlans == null) {
+            schemaPlans = new HashMap<>();
+            plans.put(schema, schemaPlans);
+        }
+        String key = requestedAttributes + "\n" + requestedExcludingAttributes;
+        ValidationPlan plan = schemaPlans.get(key);
+        if (plan == null) {
+            plan = new ValidationPlan(schema, requestedAttributes, requestedExcludingAttributes);
+            schemaPlans.put(key, plan);
+        }
+        return plan;
+    }
+
+    private ValidationPlan(SCIMResourceTypeSchema schema, String requestedAttributes,
+                           String requestedExcludingAttributes) {
+        List<AttributeSchema> attributeSchemas = schema.getAttributesList();
+        requiredChecks = new RequiredCheck[attributeSchemas.size()];
+        for (int i = 0; i < requiredChecks.length; i++) {
+            requiredChecks[i] = new RequiredCheck(attributeSchemas.get(i));
+            addPaths(null, attributeSchemas.get(i));
+        }
+        schemas = schema.getSchemasList().toArray(new String[0]);
+        this.requestedAttributes = toSet(requestedAttributes);
+        this.requestedExcludingAttributes = toSet(requestedExcludingAttributes);
+    }
+
+    /**
+     * Get the required attribute checks of the top level attributes of the schema.
+     * @return
+     */
+    public RequiredCheck[] getRequiredChecks() {
+        return requiredChecks;
+    }
+
+    /**
+     * Get the schemas every resource must list.
+     * @return
+     */
+    public String[] getSchemas() {
+        return schemas;
+    }
+
+    /**
+     * Check whether the attributes parameter was given.
+     * @return
+     */
+    public boolean hasRequestedAttributes() {
+        return requestedAttributes != null;
+    }
+
+    /**
+     * Check whether the excludedAttributes parameter was given.
+     * @return
+     */
+    public boolean hasRequestedExcludingAttributes() {
+        return requestedExcludingAttributes != null;
+    }
+
+    /**
+     * Check whether the given attribute path is in the attributes parameter.
+     * @param path
+     * @return
+     */
+    public boolean isRequested(String path) {
+        return requestedAttributes != null && requestedAttributes.contains(path);
+    }
+
+    /**
+     * Check whether the given attribute path is in the excludedAttributes parameter.
+     * @param path
+     * @return
+     */
+    public boolean isExcluded(String path) {
+        return requestedExcludingAttributes != null && requestedExcludingAttributes.contains(path);
+    }
+
+    /**
+     * Get the dotted path of an attribute, eg: name.givenName.
+     * @param parentPath
+     * @param name
+     * @return
+     */
+    public String getPath(String parentPath, String name) {
+        Map<String, String> children = paths.get(parentPath);
+        String path = children == null ? null : children.get(name);
+        // attributes outside the schema are not cached
+        return path != null ? path : parentPath + "." + name;
+    }
+
+    /**
+     * Get the dotted path of a sub attribute of a sub attribute, eg: an extension attribute.
+     * @param grandParentName
+     * @param parentName
+     * @param name
+     * @return
+     */
+    public String getPath(String grandParentName, String parentName, String name) {
+        return getPath(getPath(grandParentName, parentName), name);
+    }
+
+    private void addPaths(String parentPath, AttributeSchema attributeSchema) {
+        String path = attributeSchema.getName();
+        if (parentPath != null) {
+            path = parentPath + "." + attributeSchema.getName();
+            Map<String, String> children = paths.get(parentPath);
+            if (children == null) {
+                children = new HashMap<>();
+                paths.put(parentPath, children);
+            }
+            children.put(attributeSchema.getName(), path);
+        }
+        List<SCIMAttributeSchema> subAttributeSchemas =
+                ((SCIMAttributeSchema) attributeSchema).getSubAttributeSchemas();
+        if (subAttributeSchemas != null) {
+            for (SCIMAttributeSchema subAttributeSchema : subAttributeSchemas) {
+                addPaths(path, subAttributeSchema);
+            }
+        }
+    }
+
+    private static Set<String> toSet(String commaSeparated) {
+        if (commaSeparated == null) {
+            return null;
+        }
+        Set<String> set = new HashSet<>();
+        Collections.addAll(set, commaSeparated.split(","));
+        return set;
+    }
+
+    /**
+     * The required attribute check of an attribute and of its sub attributes.
+     */
+    public static class RequiredCheck {
+
+        private final String name;
+        private final boolean required;
+        // null if the attribute has no sub attributes
+        private final RequiredCheck[] subChecks;
+
+        private RequiredCheck(AttributeSchema attributeSchema) {
+            name = attributeSchema.getName();
+            required = attributeSchema.getRequired();
+            List<SCIMAttributeSchema> subAttributeSchemas =
+                    ((SCIMAttributeSchema) attributeSchema).getSubAttributeSchemas();
+            if (subAttributeSchemas == null) {
+                subChecks = null;
+            } else {
+                subChecks = new RequiredCheck[subAttributeSchemas.size()];
+                for (int i = 0; i < subChecks.length; i++) {
+                    subChecks[i] = new RequiredCheck(subAttributeSchemas.get(i));
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isRequired() {
+            return required;
+        }
+
+        public RequiredCheck[] getSubChecks() {
+            return subChecks;
+        }
+    }
+}
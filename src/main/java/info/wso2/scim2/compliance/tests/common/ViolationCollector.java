@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.tests.common;
+
+import info.wso2.scim2.compliance.entities.TestResult;
+import info.wso2.scim2.compliance.entities.Violation;
+import info.wso2.scim2.compliance.exception.ComplianceException;
+import info.wso2.scim2.compliance.exception.GeneralComplianceException;
+import info.wso2.scim2.compliance.protocol.ComplianceUtils;
+import info.wso2.scim2.compliance.utils.ComplianceConstants;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+/**
+ * This receives the violations found while validating a response. By default the first violation fails the
+ * test case straight away. With the scim2.compliance.validationMode system property set to collectAll the
+ * validation goes on, and every violation of the resource is reported together when it is completed.
+ */
+public class ViolationCollector {
+
+    private final boolean collectAll;
+    private final HttpRequestBase method;
+    private final String responseString;
+    private final String headerString;
+    private final String responseStatus;
+    private final ArrayList<String> subTests;
+    private final LinkedHashSet<Violation> violations = new LinkedHashSet<>();
+
+    /**
+     * Initialize with the validation mode of the system property.
+     * @param method
+     * @param responseString
+     * @param headerString
+     * @param responseStatus
+     * @param subTests
+     */
+    public ViolationCollector(HttpRequestBase method, String responseString, String headerString,
+                              String responseStatus, ArrayList<String> subTests) {
+        this(isCollectAll(), method, responseString, headerString, responseStatus, subTests);
+    }
+
+    /**
+     * Initialize.
+     * @param collectAll whether to collect every violation instead of failing on the first
+     * @param method
+     * @param responseString
+     * @param headerString
+     * @param responseStatus
+     * @param subTests
+     */
+    public ViolationCollector(boolean collectAll, HttpRequestBase method, String responseString,
+                              String headerString, String responseStatus, ArrayList<String> subTests) {
+        this.collectAll = collectAll;
+        this.method = method;
+        this.responseString = responseString;
+        this.headerString = headerString;
+        this.responseStatus = responseStatus;
+        this.subTests = subTests;
+    }
+
+    /**
+     * Check whether the collect-all validation mode is selected.
+     * @return
+     */
+    public static boolean isCollectAll() {
+        return ComplianceConstants.ValidationConstants.COLLECT_ALL_MODE.equalsIgnoreCase(System.getProperty(
+                ComplianceConstants.ValidationConstants.VALIDATION_MODE_PROPERTY,
+                ComplianceConstants.ValidationConstants.FAIL_FAST_MODE));
+    }
+
+    /**
+     * Report a violation.
+     * @param test name of the validation test, eg: Required Attribute Test
+     * @param message
+     * @throws GeneralComplianceException straight away, unless violations are collected
+     * @throws ComplianceException
+     */
+    public void report(String test, String message) throws GeneralComplianceException, ComplianceException {
+        if (!collectAll) {
+            throw new GeneralComplianceException(new TestResult(TestResult.ERROR, test, message,
+                    ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+        }
+        violations.add(new Violation(test, message));
+    }
+
+    /**
+     * Fail with the collected violations, if any.
+     * @throws GeneralComplianceException
+     * @throws ComplianceException
+     */
+    public void complete() throws GeneralComplianceException, ComplianceException {
+        if (violations.isEmpty()) {
+            return;
+        }
+        ArrayList<Violation> collected = new ArrayList<>(violations);
+        violations.clear();
+        throw new GeneralComplianceException(new TestResult(TestResult.ERROR, collected.get(0).getTest(),
+                collected, ComplianceUtils.getWire(method, responseString, headerString, responseStatus, subTests)));
+    }
+}
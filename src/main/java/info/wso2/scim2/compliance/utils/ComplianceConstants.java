@@ -65,11 +65,197 @@ public class ComplianceConstants {
         public static final String FILTER_CONTENT_TEST = "Filter Content Test";
         public static final String SORT_USERS_TEST = "Sort Users Test";
         public static final String SORT_GROUPS_TEST = "Sort Groups Test";
+        public static final String PAGINATION_TOTAL_RESULTS_TEST = "Pagination Total Results Test";
+        public static final String PAGINATION_DUPLICATES_TEST = "Pagination Duplicates Test";
+        public static final String PAGINATION_GAPS_TEST = "Pagination Gaps Test";
+        public static final String PAGINATION_ORDER_TEST = "Pagination Order Test";
 
         public static final String EXTENSION_SCHEMA_URI =
                 "urn:ietf:params:scim:schemas:extension:enterprise:2.0:User";
     }
 
+    public static class ExecutionConstants {
+        // upper bound of test suites running concurrently, shared by all the compliance runs
+        public static final int SUITE_POOL_SIZE = 8;
+        // upper bound of parallel safe test cases running concurrently, shared by all the compliance runs
+        public static final int TEST_CASE_POOL_SIZE = 16;
+        // system property selecting how the suites and test cases are executed, pooled or virtual
+        public static final String EXECUTION_MODE_PROPERTY = "scim2.compliance.executionMode";
+        public static final String POOLED_MODE = "pooled";
+        public static final String VIRTUAL_THREAD_MODE = "virtual";
+
+        public static final String SCHEMA_TEST = "Schema Test";
+        public static final String CONFIG_TEST = "Config Test";
+        public static final String USER_TEST = "User Test";
+        public static final String GROUP_TEST = "Group Test";
+        public static final String ME_TEST = "Me Test";
+        public static final String RESOURCE_TYPE_TEST = "ResourceType Test";
+        public static final String LIST_TEST = "List Test";
+        public static final String FILTER_TEST = "Filter Test";
+        public static final String PAGINATION_TEST = "Pagination Test";
+        public static final String SORT_TEST = "Sort Test";
+        public static final String BULK_TEST = "Bulk Test";
+        public static final String PERFORMANCE_TEST = "Performance Test";
+        public static final String PAGINATION_SCALING_TEST = "Pagination Scaling Test";
+        public static final String FILTER_BENCHMARK_TEST = "Filter Benchmark Test";
+    }
+
+    public static class HTTPClientConstants {
+        public static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+        public static final int MAX_TOTAL_CONNECTIONS = 100;
+        // timeouts in milliseconds
+        public static final int CONNECT_TIMEOUT = 10000;
+        public static final int SOCKET_TIMEOUT = 60000;
+        public static final int CONNECTION_REQUEST_TIMEOUT = 30000;
+        public static final int IDLE_CONNECTION_TIMEOUT = 30000;
+        // I/O dispatch threads shared by all the requests of the asynchronous client
+        public static final int IO_THREAD_COUNT = 2;
+    }
+
+    public static class CleanupConstants {
+        // system property overriding the location of the cleanup journal
+        public static final String JOURNAL_PROPERTY = "scim2.compliance.cleanupJournal";
+        public static final String JOURNAL_FILE_NAME = "scim2-compliance-cleanup.journal";
+    }
+
+    public static class ValidationConstants {
+        // system property selecting whether response validation stops at the first violation or collects all
+        public static final String VALIDATION_MODE_PROPERTY = "scim2.compliance.validationMode";
+        public static final String FAIL_FAST_MODE = "failFast";
+        public static final String COLLECT_ALL_MODE = "collectAll";
+        // list responses with at least this many resources are validated in parallel
+        public static final int PARALLEL_THRESHOLD = 64;
+        // resources validated by one worker without further splitting
+        public static final int PARALLEL_CHUNK_SIZE = 16;
+    }
+
+    public static class DiscoveryCacheConstants {
+        // system property overriding how long, in seconds, a cached discovery response is kept unrevalidated
+        public static final String TTL_PROPERTY = "scim2.compliance.discoveryCache.ttl";
+        public static final long DEFAULT_TTL = 600;
+        // service providers kept in the cache
+        public static final int MAX_TARGETS = 32;
+    }
+
+    public static class WireConstants {
+        // system properties overriding the limits below
+        public static final String MAX_PART_LENGTH_PROPERTY = "scim2.compliance.wire.maxLength";
+        public static final String SPILL_THRESHOLD_PROPERTY = "scim2.compliance.wire.spillThreshold";
+        // characters kept of each of the request, the response and the sub tests
+        public static final int DEFAULT_MAX_PART_LENGTH = 65536;
+        // compressed wires larger than this many bytes are kept in a temp file
+        public static final int DEFAULT_SPILL_THRESHOLD = 16384;
+    }
+
+    public static class ReportConstants {
+        // bytes of a PDF report kept on the heap while it is generated, the rest goes to a scratch file
+        public static final long MAX_MAIN_MEMORY_BYTES = 4 * 1024 * 1024;
+        // reports generated at the same time, and waiting to be generated
+        public static final int WORKERS = 2;
+        public static final int QUEUE_CAPACITY = 32;
+        // report jobs, and their files, kept for download
+        public static final int MAX_RETAINED_JOBS = 128;
+        // relative to the web client
+        public static final String REPORT_PATH = "compliance2/report/";
+
+        public static final String PENDING = "pending";
+        public static final String RUNNING = "running";
+        public static final String DONE = "done";
+        public static final String FAILED = "failed";
+    }
+
+    public static class JobConstants {
+        // system properties overriding the limits below
+        public static final String MAX_CONCURRENT_RUNS_PROPERTY = "scim2.compliance.maxConcurrentRuns";
+        public static final String MAX_QUEUED_RUNS_PROPERTY = "scim2.compliance.maxQueuedRuns";
+        // compliance runs executed at the same time, and waiting to be executed
+        public static final int DEFAULT_MAX_CONCURRENT_RUNS = 8;
+        public static final int DEFAULT_MAX_QUEUED_RUNS = 32;
+        // run jobs kept for their clients to follow
+        public static final int MAX_RETAINED_JOBS = 64;
+
+        public static final String QUEUED = "queued";
+        public static final String RUNNING = "running";
+        public static final String DONE = "done";
+        public static final String FAILED = "failed";
+    }
+
+    public static class RateLimitConstants {
+        // system properties overriding the limits below, a rate of 0 disables the rate limit
+        public static final String REQUESTS_PER_SECOND_PROPERTY = "scim2.compliance.rateLimit.requestsPerSecond";
+        public static final String BURST_PROPERTY = "scim2.compliance.rateLimit.burst";
+        // requests sent to a host under test, across all the runs
+        public static final double DEFAULT_REQUESTS_PER_SECOND = 100;
+        public static final double DEFAULT_BURST = 50;
+    }
+
+    public static class PerformanceConstants {
+        // system property enabling the performance test, which is not run by default
+        public static final String ENABLED_PROPERTY = "scim2.compliance.performance.enabled";
+        // system properties overriding the load below
+        public static final String CONCURRENCY_PROPERTY = "scim2.compliance.performance.concurrency";
+        public static final String OPERATIONS_PROPERTY = "scim2.compliance.performance.operations";
+        // requests in flight at the same time, capped at the connections per route, and requests per operation
+        public static final int DEFAULT_CONCURRENCY = 8;
+        public static final int DEFAULT_OPERATIONS = 200;
+        // users created by each request of the bulk performance test case
+        public static final int BULK_OPERATIONS_PER_REQUEST = 10;
+    }
+
+    public static class PaginationScalingConstants {
+        // system property enabling the pagination scaling test, which is not run by default
+        public static final String ENABLED_PROPERTY = "scim2.compliance.paginationScaling.enabled";
+        // system properties overriding the size of the data set and of the pages walked
+        public static final String USERS_PROPERTY = "scim2.compliance.paginationScaling.users";
+        public static final String PAGE_SIZE_PROPERTY = "scim2.compliance.paginationScaling.pageSize";
+        public static final int DEFAULT_USERS = 1000;
+        public static final int DEFAULT_PAGE_SIZE = 100;
+        // parts of the collection, by startIndex, the page latencies are grouped by
+        public static final int LATENCY_SEGMENTS = 10;
+        // the last pages fail the test when their median latency is this many times that of the first pages,
+        // and above the threshold in microseconds, below which the difference is taken as noise
+        public static final int DEGRADATION_FACTOR = 4;
+        public static final long DEGRADATION_THRESHOLD = 50000;
+    }
+
+    public static class FilterBenchmarkConstants {
+        // system property enabling the filter benchmark, which is not run by default
+        public static final String ENABLED_PROPERTY = "scim2.compliance.filterBenchmark.enabled";
+        // system properties overriding the data set sizes measured at, comma separated, and the requests sent
+        // for each operator at each size
+        public static final String SIZES_PROPERTY = "scim2.compliance.filterBenchmark.sizes";
+        public static final String REQUESTS_PROPERTY = "scim2.compliance.filterBenchmark.requests";
+        public static final String DEFAULT_SIZES = "100,1000";
+        public static final int DEFAULT_REQUESTS = 20;
+        // distinct expressions generated for each operator at each size
+        public static final int EXPRESSIONS_PER_OPERATOR = 5;
+        // resources asked for by each request, so that the latency is of the filter rather than of the results
+        public static final int PAGE_SIZE = 10;
+        // the same expressions are generated on every run, so that runs can be compared
+        public static final long SEED = 2017;
+        // mismatched result counts kept for the report, per operator
+        public static final int MAX_REPORTED_MISMATCHES = 10;
+    }
+
+    public static class CliConstants {
+        public static final String CONFIG = "config";
+        public static final String OUTPUT = "output";
+        public static final String RESULTS_FILE_NAME = "compliance-results.json";
+
+        public static final int EXIT_SUCCESS = 0;
+        public static final int EXIT_FAILED = 1;
+        public static final int EXIT_ERROR = 2;
+    }
+
+    public static class BulkConstants {
+        public static final String BULK_REQUEST_SCHEMA = "urn:ietf:params:scim:api:messages:2.0:BulkRequest";
+        // used when the service provider config does not advertise the limits
+        public static final int DEFAULT_MAX_OPERATIONS = 1000;
+        public static final int DEFAULT_MAX_PAYLOAD_SIZE = 1048576;
+        // room left in each request for the envelope around the operations
+        public static final int ENVELOPE_SIZE = 256;
+    }
+
     public static class DefinedInstances {
 
         public static String DEFINED_USER_PASSWORD = "7019asd84";
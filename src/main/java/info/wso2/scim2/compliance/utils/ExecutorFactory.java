@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.wso2.scim2.compliance.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This creates the executors the compliance runs are executed on. By default these are bounded pools of
+ * daemon threads. When the virtual thread execution mode is selected and the runtime supports virtual
+ * threads, which takes a Java 21 or later runtime, every task gets its own virtual thread instead, and the
+ * concurrency is bounded only by the HTTP connection pool. On older runtimes the pools are used, with a
+ * warning.
+ */
+public class ExecutorFactory {
+
+    private static final Log log = LogFactory.getLog(ExecutorFactory.class);
+    // the fallback is logged once rather than for every executor
+    private static final AtomicBoolean fallbackLogged = new AtomicBoolean();
+
+    /**
+     * Create an executor for the current execution mode.
+     * @param threadNamePrefix prefix of the pooled thread names, eg: compliance-suite-
+     * @param poolSize number of pooled threads, not used for virtual threads
+     * @return
+     */
+    public static ExecutorService newExecutor(final String threadNamePrefix, int poolSize) {
+        if (isVirtualThreadMode()) {
+            ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+            if (virtualThreadExecutor != null) {
+                return virtualThreadExecutor;
+            }
+            if (fallbackLogged.compareAndSet(false, true)) {
+                log.warn(ComplianceConstants.ExecutionConstants.EXECUTION_MODE_PROPERTY + "="
+                        + ComplianceConstants.ExecutionConstants.VIRTUAL_THREAD_MODE + " needs a Java 21 or later"
+                        + " runtime, running on " + System.getProperty("java.version")
+                        + " with pooled threads instead.");
+            }
+        }
+        return Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadNamePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Check whether the virtual thread execution mode is selected.
+     * @return
+     */
+    public static boolean isVirtualThreadMode() {
+        return ComplianceConstants.ExecutionConstants.VIRTUAL_THREAD_MODE.equalsIgnoreCase(
+                System.getProperty(ComplianceConstants.ExecutionConstants.EXECUTION_MODE_PROPERTY,
+                        ComplianceConstants.ExecutionConstants.POOLED_MODE));
+    }
+
+    /**
+     * The project is built for Java 8, so the virtual thread executor is looked up at runtime.
+     * @return the executor, or null when the runtime does not support virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
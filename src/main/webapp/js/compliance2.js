@@ -40,6 +40,22 @@ $(document).ready(
             $("#compliance-error-container2").show();
         };
 
+        var pollReport = function(reportJobId) {
+            $.get("compliance2/report/" + reportJobId, function(status) {
+                if (status.status == "done") {
+                    var y = document.getElementById('report');
+                    y.style.display = 'block';
+                    y.href = status.linkToReport;
+                    $("#report-link-container").show();
+                } else if (status.status == "failed") {
+                    $("#report-link-container").text("The report could not be generated. "
+                        + status.errorMessage).show();
+                } else {
+                    setTimeout(function() { pollReport(reportJobId); }, 1000);
+                }
+            });
+        };
+
         var handleResponse = function(data) {
 
             $("#spinner-container2").empty();
@@ -87,16 +103,33 @@ $(document).ready(
                 new google.visualization.PieChart(document
                     .getElementById('compliance-chart2')).draw(chartData, options);
 
-                var y = document.getElementById('report');
-                y.style.display = 'block';
-                y.href = data.linkToReport;
-                $("#report-link-container").show();
+                pollReport(data.reportJobId);
 
                 prettyPrint();
                 $("#result-container2").show();
             }
         };
 
+        var handleProgress = function(progress, index, color) {
+            if (progress.status == "done" || progress.status == "failed") {
+                handleResponse(progress.result);
+                return;
+            }
+            var results = [].concat(progress.results || []);
+            if (results.length > 0) {
+                var template = $('#testTemplate').html();
+                var html = Mustache.to_html(template, {results : results, index : index, color : color});
+                $("#compliance-result-container2").append(html);
+                $("#compliance-result-container2 .label-info").unbind("click").click(toggleWire);
+                $("#result-container2").show();
+            }
+            setTimeout(function() {
+                $.get("compliance2/jobs/" + progress.id, {from : progress.next}, function(next) {
+                    handleProgress(next, index, color);
+                }).error(handleError);
+            }, 1000);
+        };
+
         var authMethodChanged = function() {
             $("#authMethod2 option:selected").each(function() {
                 $(".authMethod2").hide();
@@ -139,7 +172,10 @@ $(document).ready(
                     left: 'auto'
                 });
                 checked = true;
-                $.post("compliance2/test2", data, handleResponse).error(handleError);
+                $("#compliance-result-container2").empty();
+                $.post("compliance2/jobs", data, function(progress) {
+                    handleProgress(progress, getIndex(), getColor());
+                }).error(handleError);
                 return false;
             }
         };